@@ -1,46 +1,142 @@
 package com.julianh06.wynnextras_server;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.julianh06.wynnextras_server.util.ExpiringCache;
+import com.julianh06.wynnextras_server.util.LatencyHistogram;
+import com.julianh06.wynnextras_server.util.PlayerUuids;
+import com.julianh06.wynnextras_server.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gateway for every Wynncraft API call: one shared HTTP/2 client, a global rate limit, a TTL
+ * cache per endpoint with conditional revalidation (ETag / Last-Modified) and request metrics.
+ */
 @Service
 public class WynncraftService {
     private static final URI CLASSES_URI = URI.create("https://api.wynncraft.com/v3/classes");
     private static final URI ONLINE_PLAYERS_URI = URI.create("https://api.wynncraft.com/v3/player?identifier=uuid");
+    private static final URI WHOAMI_URI = URI.create("https://api.wynncraft.com/v3/player/whoami");
     private static final String ASPECTS_URL_TEMPLATE = "https://api.wynncraft.com/v3/aspects/%s";
+    private static final String GUILD_URL_TEMPLATE = "https://api.wynncraft.com/v3/guild/prefix/%s";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    // How long a response stays around after its TTL to be revalidated with a conditional request
+    private static final long REVALIDATION_WINDOW_MS = 24L * 60 * 60 * 1000;
+    private static final int MAX_CACHED_RESPONSES = 1000;
+    private static final long EVICTION_INTERVAL_MS = 10 * 60 * 1000;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    // The online player list has tens of thousands of one-off field names (the UUIDs), which are
+    // not worth interning into the symbol table
+    private static final JsonFactory streamingFactory = JsonFactory.builder()
+            .disable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES)
+            .build();
+
+    /**
+     * Endpoints with their cache TTL. A zero TTL is never cached (per-user responses, and the
+     * online player list, where every fetch is a new sample). Requests made with the user's own
+     * API key do not take from the server-wide rate limit.
+     */
+    public enum Endpoint {
+        CLASSES(Duration.ofHours(1), true),
+        ASPECTS(Duration.ofHours(1), true),
+        GUILD(Duration.ofMinutes(5), true),
+        ONLINE_PLAYERS(Duration.ZERO, true),
+        WHOAMI(Duration.ZERO, false);
+
+        private final Duration ttl;
+        private final boolean sharedRateLimit;
+
+        Endpoint(Duration ttl, boolean sharedRateLimit) {
+            this.ttl = ttl;
+            this.sharedRateLimit = sharedRateLimit;
+        }
+    }
 
-    private final HttpClient client = HttpClient.newHttpClient();
-    private final ObjectMapper mapper = new ObjectMapper();
+    public record OnlinePlayerSample(PlayerUuids players, int totalOnlinePlayers) {}
+
+    private record CachedResponse(byte[] body, String etag, String lastModified, long freshUntil) {}
+
+    private static final class EndpointMetrics {
+        private final AtomicLong cacheHits = new AtomicLong();
+        private final AtomicLong cacheMisses = new AtomicLong();
+        private final AtomicLong revalidated = new AtomicLong();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        Map<String, Object> getStats() {
+            long hits = cacheHits.get();
+            long lookups = hits + cacheMisses.get();
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("cacheHits", hits);
+            stats.put("cacheMisses", cacheMisses.get());
+            stats.put("notModified", revalidated.get());
+            stats.put("cacheHitRate", lookups == 0 ? 0.0 : (double) hits / lookups);
+            stats.put("latency", latency.getStats());
+            return stats;
+        }
+    }
 
-    public record OnlinePlayerSample(Set<String> playerUuids, int totalOnlinePlayers) {}
+    public static class WynncraftApiException extends Exception {
+        private final int statusCode;
 
-    public List<String> fetchUuid(String apiKey) {
-        try {
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create("https://api.wynncraft.com/v3/player/whoami"))
-                    .header("Authorization", "Bearer " + apiKey)
-                    .GET()
-                    .build();
+        public WynncraftApiException(int statusCode, String message) {
+            super(message);
+            this.statusCode = statusCode;
+        }
 
-            HttpResponse<String> response =
-                    client.send(request, HttpResponse.BodyHandlers.ofString());
+        public int getStatusCode() {
+            return statusCode;
+        }
+    }
 
-            if (response.statusCode() != 200) {
-                throw new RuntimeException("Wynncraft API failed: " + response.statusCode());
-            }
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final TokenBucket rateLimiter;
+    private final ExpiringCache<URI, CachedResponse> responseCache = new ExpiringCache<>(MAX_CACHED_RESPONSES);
+    private final Map<Endpoint, EndpointMetrics> metrics = new EnumMap<>(Endpoint.class);
+    private final Map<String, AtomicLong> statusCodes = new ConcurrentHashMap<>();
+
+    public WynncraftService(
+            @Value("${wynnextras.wynncraft.rate-limit.burst:10}") int burst,
+            @Value("${wynnextras.wynncraft.rate-limit.per-second:2}") double perSecond) {
+        this.rateLimiter = new TokenBucket(burst, perSecond);
+        for (Endpoint endpoint : Endpoint.values()) {
+            metrics.put(endpoint, new EndpointMetrics());
+        }
+    }
 
-            JsonNode root = mapper.readTree(response.body());
+    public List<String> fetchUuid(String apiKey) {
+        try {
+            JsonNode root = mapper.readTree(fetch(Endpoint.WHOAMI, WHOAMI_URI, "Bearer " + apiKey, REQUEST_TIMEOUT));
 
             List<String> uuids = new ArrayList<>();
             Iterator<String> fieldNames = root.fieldNames();
@@ -66,7 +162,7 @@ public class WynncraftService {
             Set<String> aspectNames = new LinkedHashSet<>();
 
             for (String classTree : classTrees) {
-                JsonNode root = fetchJson(URI.create(ASPECTS_URL_TEMPLATE.formatted(classTree)));
+                JsonNode root = fetchJson(Endpoint.ASPECTS, URI.create(ASPECTS_URL_TEMPLATE.formatted(classTree)));
                 if (!root.isArray()) {
                     throw new RuntimeException("Invalid JSON: aspects response is not a list for class tree " + classTree);
                 }
@@ -91,35 +187,74 @@ public class WynncraftService {
     }
 
     public Set<String> fetchOnlinePlayerUuids() {
-        return fetchOnlinePlayerSample().playerUuids();
+        return fetchOnlinePlayerSample().players().toHexStrings();
     }
 
     public OnlinePlayerSample fetchOnlinePlayerSample() {
         try {
-            JsonNode root = fetchJson(ONLINE_PLAYERS_URI);
-            JsonNode players = root.path("players");
-            if (!players.isObject()) {
-                throw new RuntimeException("Invalid JSON: players response is not an object");
-            }
+            return parseOnlinePlayers(fetch(Endpoint.ONLINE_PLAYERS, ONLINE_PLAYERS_URI, null, REQUEST_TIMEOUT));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to fetch online Wynncraft players", e);
+        }
+    }
 
-            Set<String> uuids = new LinkedHashSet<>();
-            Iterator<String> fieldNames = players.fieldNames();
-            while (fieldNames.hasNext()) {
-                String uuid = fieldNames.next().replace("-", "").toLowerCase();
-                if (uuid.matches("[0-9a-f]{32}")) {
-                    uuids.add(uuid);
+    /**
+     * Stream over {"total": n, "players": {"&lt;uuid&gt;": "&lt;server&gt;", ...}} without building a tree.
+     * Each UUID key is decoded into its msb/lsb pair as it is read. The parser still creates a
+     * String per key (getTextCharacters() on a FIELD_NAME copies currentName()), but it is not
+     * interned, kept or normalized.
+     */
+    static OnlinePlayerSample parseOnlinePlayers(byte[] body) throws IOException {
+        PlayerUuids.Builder players = null;
+        int total = -1;
+        try (JsonParser parser = streamingFactory.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Invalid JSON: online players response is not an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("players".equals(field)) {
+                    if (value != JsonToken.START_OBJECT) {
+                        throw new IOException("Invalid JSON: players response is not an object");
+                    }
+                    players = new PlayerUuids.Builder();
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        players.add(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                        parser.nextToken();
+                        parser.skipChildren();
+                    }
+                } else if ("total".equals(field) && value == JsonToken.VALUE_NUMBER_INT) {
+                    total = parser.getIntValue();
+                } else {
+                    parser.skipChildren();
                 }
             }
+        }
+        if (players == null) {
+            throw new IOException("Invalid JSON: players response is not an object");
+        }
 
-            return new OnlinePlayerSample(uuids, root.path("total").asInt(uuids.size()));
+        PlayerUuids uuids = players.build();
+        return new OnlinePlayerSample(uuids, total >= 0 ? total : uuids.size());
+    }
 
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to fetch online Wynncraft players", e);
+    /**
+     * Fetch a guild by its prefix, waiting for the rate limit and the response for at most
+     * {@code timeout} together.
+     */
+    public JsonNode fetchGuildByPrefix(String prefix, Duration timeout) throws WynncraftApiException, InterruptedException {
+        URI uri = URI.create(GUILD_URL_TEMPLATE.formatted(URLEncoder.encode(prefix.trim(), StandardCharsets.UTF_8)));
+        byte[] body = fetch(Endpoint.GUILD, uri, null, timeout);
+        try {
+            return mapper.readTree(body);
+        } catch (IOException e) {
+            throw new WynncraftApiException(502, "Invalid JSON from Wynncraft API: " + e.getMessage());
         }
     }
 
     private Set<String> fetchClassTrees() throws Exception {
-        JsonNode root = fetchJson(CLASSES_URI);
+        JsonNode root = fetchJson(Endpoint.CLASSES, CLASSES_URI);
         Set<String> classTrees = new LinkedHashSet<>();
         Iterator<String> fieldNames = root.fieldNames();
 
@@ -134,20 +269,112 @@ public class WynncraftService {
         return classTrees;
     }
 
-    private JsonNode fetchJson(URI uri) throws Exception {
-        HttpRequest request = HttpRequest.newBuilder()
+    private JsonNode fetchJson(Endpoint endpoint, URI uri) throws Exception {
+        return mapper.readTree(fetch(endpoint, uri, null, REQUEST_TIMEOUT));
+    }
+
+    /**
+     * Response body of a GET, from the cache while it is fresh. Stale entries are revalidated
+     * with a conditional request; a 304 keeps the cached body for another TTL.
+     */
+    private byte[] fetch(Endpoint endpoint, URI uri, String authorization, Duration timeout)
+            throws WynncraftApiException, InterruptedException {
+        EndpointMetrics endpointMetrics = metrics.get(endpoint);
+        boolean cacheable = !endpoint.ttl.isZero();
+        CachedResponse cached = cacheable ? responseCache.get(uri) : null;
+        if (cached != null && cached.freshUntil() > System.currentTimeMillis()) {
+            endpointMetrics.cacheHits.incrementAndGet();
+            return cached.body();
+        }
+        endpointMetrics.cacheMisses.incrementAndGet();
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        if (endpoint.sharedRateLimit && !rateLimiter.tryAcquire(timeout)) {
+            countStatus("rateLimited");
+            throw new WynncraftApiException(429, "Rate limited, no Wynncraft API request available in time");
+        }
+        Duration remaining = Duration.ofNanos(deadline - System.nanoTime());
+        if (remaining.isNegative() || remaining.isZero()) {
+            countStatus("timeout");
+            throw new WynncraftApiException(504, "Timed out waiting for the Wynncraft API rate limit");
+        }
+
+        HttpRequest.Builder request = HttpRequest.newBuilder()
                 .uri(uri)
+                .timeout(remaining.compareTo(REQUEST_TIMEOUT) < 0 ? remaining : REQUEST_TIMEOUT)
                 .header("Accept", "application/json")
-                .GET()
-                .build();
+                .GET();
+        if (authorization != null) {
+            request.header("Authorization", authorization);
+        }
+        if (cached != null && cached.etag() != null) {
+            request.header("If-None-Match", cached.etag());
+        }
+        if (cached != null && cached.lastModified() != null) {
+            request.header("If-Modified-Since", cached.lastModified());
+        }
 
-        HttpResponse<String> response =
-                client.send(request, HttpResponse.BodyHandlers.ofString());
+        long start = System.nanoTime();
+        HttpResponse<byte[]> response;
+        try {
+            response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            endpointMetrics.latency.record((System.nanoTime() - start) / 1_000_000);
+            countStatus("error");
+            throw new WynncraftApiException(502, "Wynncraft API request failed for " + uri + ": "
+                    + (e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+        }
+        endpointMetrics.latency.record((System.nanoTime() - start) / 1_000_000);
+        countStatus(Integer.toString(response.statusCode()));
 
+        if (response.statusCode() == 304 && cached != null) {
+            endpointMetrics.revalidated.incrementAndGet();
+            cache(endpoint, uri, new CachedResponse(cached.body(), cached.etag(), cached.lastModified(), 0));
+            return cached.body();
+        }
         if (response.statusCode() != 200) {
-            throw new RuntimeException("Wynncraft API failed for " + uri + ": " + response.statusCode());
+            throw new WynncraftApiException(response.statusCode(), "Wynncraft API failed for " + uri + ": " + response.statusCode());
         }
 
-        return mapper.readTree(response.body());
+        if (cacheable) {
+            cache(endpoint, uri, new CachedResponse(response.body(),
+                    response.headers().firstValue("ETag").orElse(null),
+                    response.headers().firstValue("Last-Modified").orElse(null),
+                    0));
+        }
+        return response.body();
+    }
+
+    private void cache(Endpoint endpoint, URI uri, CachedResponse response) {
+        long freshUntil = System.currentTimeMillis() + endpoint.ttl.toMillis();
+        CachedResponse entry = new CachedResponse(response.body(), response.etag(), response.lastModified(), freshUntil);
+        // Keep entries that can be revalidated past their TTL, the rest only until they go stale
+        boolean revalidatable = entry.etag() != null || entry.lastModified() != null;
+        responseCache.put(uri, entry, revalidatable ? freshUntil + REVALIDATION_WINDOW_MS : freshUntil);
+    }
+
+    private void countStatus(String status) {
+        statusCodes.computeIfAbsent(status, ignored -> new AtomicLong()).incrementAndGet();
+    }
+
+    @Scheduled(fixedDelay = EVICTION_INTERVAL_MS, initialDelay = EVICTION_INTERVAL_MS)
+    public void evictExpiredResponses() {
+        responseCache.evictExpired();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (Map.Entry<Endpoint, EndpointMetrics> entry : metrics.entrySet()) {
+            endpoints.put(entry.getKey().name(), entry.getValue().getStats());
+        }
+        Map<String, Long> statuses = new TreeMap<>();
+        statusCodes.forEach((status, count) -> statuses.put(status, count.get()));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("rateLimit", rateLimiter.getStats());
+        stats.put("responseCache", responseCache.getStats());
+        stats.put("statusCodes", statuses);
+        stats.put("endpoints", endpoints);
+        return stats;
     }
-}
\ No newline at end of file
+}
@@ -1,9 +1,17 @@
 package com.julianh06.wynnextras_server.controller;
 
 import com.julianh06.wynnextras_server.WynncraftService;
+import com.julianh06.wynnextras_server.entity.SightingRollup;
 import com.julianh06.wynnextras_server.entity.WynncraftUsageSnapshot;
 import com.julianh06.wynnextras_server.repository.*;
+import com.julianh06.wynnextras_server.service.AuthService;
 import com.julianh06.wynnextras_server.service.GuildStatsService;
+import com.julianh06.wynnextras_server.service.HeartbeatBuffer;
+import com.julianh06.wynnextras_server.service.RetentionService;
+import com.julianh06.wynnextras_server.service.SightingRollupService;
+import com.julianh06.wynnextras_server.service.SightingStore;
+import com.julianh06.wynnextras_server.service.UsageSampleSummaryService;
+import com.julianh06.wynnextras_server.service.UserFirstSeenService;
 import com.julianh06.wynnextras_server.service.VerifiedUserLoader;
 import com.julianh06.wynnextras_server.service.WynncraftUsageStatsService;
 import jakarta.transaction.Transactional;
@@ -39,6 +47,13 @@ public class AdminController {
     @Autowired private GuildStatsService guildStatsService;
     @Autowired private WynncraftService wynncraftService;
     @Autowired private WynncraftUsageStatsService wynncraftUsageStatsService;
+    @Autowired private HeartbeatBuffer heartbeatBuffer;
+    @Autowired private AuthService authService;
+    @Autowired private RetentionService retentionService;
+    @Autowired private UserFirstSeenService userFirstSeenService;
+    @Autowired private SightingStore sightingStore;
+    @Autowired private UsageSampleSummaryService usageSampleSummaryService;
+    @Autowired private SightingRollupService sightingRollupService;
 
     /**
      * Reload verified users from file
@@ -86,6 +101,73 @@ public class AdminController {
         return ResponseEntity.ok(response);
     }
 
+    /**
+     * Heartbeat write-behind buffer metrics (pending, coalesced, rejected, flush timings)
+     * GET /admin/heartbeat-buffer/stats
+     */
+    @GetMapping("/heartbeat-buffer/stats")
+    public ResponseEntity<?> getHeartbeatBufferStats() {
+        return ResponseEntity.ok(heartbeatBuffer.getStats());
+    }
+
+    /**
+     * Force an immediate flush of buffered heartbeats
+     * POST /admin/heartbeat-buffer/flush
+     */
+    @PostMapping("/heartbeat-buffer/flush")
+    public ResponseEntity<?> flushHeartbeatBuffer() {
+        heartbeatBuffer.flush();
+        return ResponseEntity.ok(heartbeatBuffer.getStats());
+    }
+
+    /**
+     * Live session and Mojang auth cache sizes plus expiry/LRU eviction counters
+     * GET /admin/auth/stats
+     */
+    @GetMapping("/auth/stats")
+    public ResponseEntity<?> getAuthStats() {
+        return ResponseEntity.ok(authService.getStats());
+    }
+
+    /**
+     * Revoke every session of a player (signed session tokens only)
+     * POST /admin/auth/revoke?uuid=...
+     */
+    @PostMapping("/auth/revoke")
+    public ResponseEntity<?> revokePlayerSessions(@RequestParam String uuid) {
+        try {
+            if (!authService.revokePlayerSessions(uuid)) {
+                return ResponseEntity.badRequest().body("Session store does not support revoking by player");
+            }
+        } catch (IllegalStateException e) {
+            logger.error("Could not revoke sessions of {}: {}", uuid, e.getMessage());
+            return ResponseEntity.status(503).body("Revocation not recorded: " + e.getMessage());
+        }
+        return ResponseEntity.ok(Map.of("revoked", uuid));
+    }
+
+    /**
+     * Tracked users and churn counts from the user_first_seen index
+     * GET /admin/retention/stats
+     */
+    @GetMapping("/retention/stats")
+    public ResponseEntity<?> getRetentionStats() {
+        return ResponseEntity.ok(retentionService.getStats());
+    }
+
+    /**
+     * Rebuild user_first_seen from daily_user_activity
+     * POST /admin/user-first-seen/backfill
+     */
+    @PostMapping("/user-first-seen/backfill")
+    public ResponseEntity<?> backfillUserFirstSeen() {
+        int written = userFirstSeenService.backfill();
+        if (written < 0) {
+            return ResponseEntity.badRequest().body("Backfill already running");
+        }
+        return ResponseEntity.ok(Map.of("users", written));
+    }
+
     /**
      * DELETE /admin/loot-pool/raid?raidType=NOTG - specific raid
      * DELETE /admin/loot-pool/raid - all raids
@@ -269,6 +351,115 @@ public class AdminController {
         }
     }
 
+    /**
+     * Wynncraft API gateway metrics: rate limit, response cache, status codes and latency per endpoint
+     * GET /admin/wynncraft-api/stats
+     */
+    @GetMapping("/wynncraft-api/stats")
+    public ResponseEntity<?> getWynncraftApiStats() {
+        return ResponseEntity.ok(wynncraftService.getStats());
+    }
+
+    /**
+     * Storage engine and state of the Wynncraft player sighting store
+     * GET /admin/sightings/stats
+     */
+    @GetMapping("/sightings/stats")
+    public ResponseEntity<?> getSightingStoreStats() {
+        return ResponseEntity.ok(sightingStore.getStats());
+    }
+
+    /**
+     * Copy wynncraft_player_sighting rows into the configured store (bitmap store only)
+     * POST /admin/sightings/import-rows
+     */
+    @PostMapping("/sightings/import-rows")
+    public ResponseEntity<?> importSightingRows() {
+        long imported = sightingStore.importFromRows();
+        if (imported < 0) {
+            return ResponseEntity.badRequest().body("Sighting store does not support importing rows");
+        }
+        return ResponseEntity.ok(Map.of("samples", imported));
+    }
+
+    /**
+     * Roll up completed days and weeks of sightings and delete raw samples past the retention window
+     * POST /admin/sightings/rollup
+     */
+    @PostMapping("/sightings/rollup")
+    public ResponseEntity<?> rollupSightings() {
+        SightingRollupService.RollupResult result = sightingRollupService.rollupAndPrune();
+        if (result == null) {
+            return ResponseEntity.badRequest().body("Rollup already running");
+        }
+        return ResponseEntity.ok(Map.of(
+                "days", result.days(),
+                "weeks", result.weeks(),
+                "samplesDeleted", result.samplesDeleted()
+        ));
+    }
+
+    /**
+     * Distinct players per UTC day or ISO week (inclusive start dates)
+     * GET /admin/sightings/rollups?period=week&from=2026-01-01&to=2026-03-31
+     */
+    @GetMapping("/sightings/rollups")
+    public ResponseEntity<?> getSightingRollups(
+            @RequestParam(defaultValue = "day") String period,
+            @RequestParam String from,
+            @RequestParam String to) {
+        SightingRollup.Period rollupPeriod;
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            rollupPeriod = SightingRollup.Period.valueOf(period.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Period must be day or week");
+        }
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Dates must be yyyy-MM-dd");
+        }
+
+        List<Map<String, Object>> rollups = new ArrayList<>();
+        for (SightingRollup rollup : sightingRollupService.findBetween(rollupPeriod, fromDate, toDate)) {
+            rollups.add(Map.of(
+                    "periodStart", rollup.getPeriodStart().toString(),
+                    "uniquePlayers", rollup.getUniquePlayers(),
+                    "sampleCount", rollup.getSampleCount(),
+                    "computedAt", rollup.getComputedAt().toString()
+            ));
+        }
+        return ResponseEntity.ok(rollups);
+    }
+
+    /**
+     * Recompute usage_sample_summary for the given UTC days (inclusive)
+     * POST /admin/usage-summary/recompute?from=2026-01-01&to=2026-01-31
+     */
+    @PostMapping("/usage-summary/recompute")
+    public ResponseEntity<?> recomputeUsageSummaries(@RequestParam String from, @RequestParam String to) {
+        LocalDate fromDate;
+        LocalDate toDate;
+        try {
+            fromDate = LocalDate.parse(from);
+            toDate = LocalDate.parse(to);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Dates must be yyyy-MM-dd");
+        }
+        if (toDate.isBefore(fromDate)) {
+            return ResponseEntity.badRequest().body("'to' is before 'from'");
+        }
+
+        int samples = usageSampleSummaryService.recomputeDays(fromDate, toDate);
+        if (samples < 0) {
+            return ResponseEntity.badRequest().body("Recompute already running");
+        }
+        return ResponseEntity.ok(Map.of("samples", samples));
+    }
+
     @PostMapping("/wynncraft-usage/snapshot")
     public ResponseEntity<?> captureWynncraftUsageSnapshot() {
         Instant snapshotInstant = Instant.now();
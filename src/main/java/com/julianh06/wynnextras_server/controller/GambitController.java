@@ -44,7 +44,7 @@ public class GambitController {
         }
 
         // Validate session
-        AuthService.SessionData session = AuthService.validateSession(token);
+        AuthService.SessionData session = mojangAuth.validateSession(token);
 
         if (session == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
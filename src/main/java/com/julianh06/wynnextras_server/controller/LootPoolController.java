@@ -42,7 +42,7 @@ public class LootPoolController {
                     .body(Map.of("status","error","message","Missing session token"));
         }
 
-        AuthService.SessionData session = AuthService.validateSession(token);
+        AuthService.SessionData session = mojangAuth.validateSession(token);
 
         if (session == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
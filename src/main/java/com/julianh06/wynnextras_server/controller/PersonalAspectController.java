@@ -56,7 +56,7 @@ public class PersonalAspectController {
                     .body(createResponse("error","Missing session token"));
         }
 
-        AuthService.SessionData session = AuthService.validateSession(token);
+        AuthService.SessionData session = mojangAuth.validateSession(token);
 
         if (session == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
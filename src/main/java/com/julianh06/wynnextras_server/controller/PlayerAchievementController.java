@@ -33,6 +33,9 @@ public class PlayerAchievementController {
     @Autowired
     private PlayerAchievementRepository achievementRepo;
 
+    @Autowired
+    private AuthService authService;
+
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @PostMapping
@@ -46,7 +49,7 @@ public class PlayerAchievementController {
                     .body(createResponse("error", "Missing session token"));
         }
 
-        AuthService.SessionData session = AuthService.validateSession(token);
+        AuthService.SessionData session = authService.validateSession(token);
 
         if (session == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
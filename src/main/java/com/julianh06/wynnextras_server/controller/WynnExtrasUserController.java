@@ -1,26 +1,27 @@
 package com.julianh06.wynnextras_server.controller;
 
 import com.julianh06.wynnextras_server.entity.WynnExtrasUser;
-import com.julianh06.wynnextras_server.entity.DailyUserActivity;
-import com.julianh06.wynnextras_server.repository.DailyUserActivityRepository;
 import com.julianh06.wynnextras_server.repository.WynnExtrasUserRepository;
 import com.julianh06.wynnextras_server.service.AuthService;
-import jakarta.transaction.Transactional;
+import com.julianh06.wynnextras_server.service.ActiveBadgeService;
+import com.julianh06.wynnextras_server.service.HeartbeatBuffer;
+import com.julianh06.wynnextras_server.util.BadgeBinaryCodec;
+import com.julianh06.wynnextras_server.util.BadgeCatalog;
+import com.julianh06.wynnextras_server.util.UuidBloomFilter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDate;
-import java.time.ZoneOffset;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
-import java.util.Set;
 
 /**
  * Controller for WynnExtras user badge (⭐) system.
@@ -28,26 +29,30 @@ import java.util.Set;
  * Endpoints:
  * - POST /wynnextras-users/heartbeat - Client heartbeat to register activity
  * - GET /wynnextras-users/active - Get list of active user UUIDs for badge display
+ * - GET /wynnextras-users/active/changes?since=... - Badge list changes since a version
+ * - GET /wynnextras-users/active/filter - Bloom filter over active UUIDs
+ * - POST /wynnextras-users/active/lookup - Exact badge lookup for a batch of UUIDs
  */
 @RestController
 @RequestMapping("/wynnextras-users")
 public class WynnExtrasUserController {
     private static final Logger logger = LoggerFactory.getLogger(WynnExtrasUserController.class);
-    private static final Duration ACTIVE_THRESHOLD = Duration.ofDays(7);
-    private static final String DEFAULT_BADGE_ICON_ID = "skull";
-    private static final String DEFAULT_BADGE_COLOR_ID = "gold";
-    private static final Set<String> VALID_BADGE_ICON_IDS = Set.of(
-            "skull", "star", "radiant", "crown", "spark", "mythic", "tna", "notg", "nol", "twp", "tcc"
-    );
-    private static final Set<String> VALID_BADGE_COLOR_IDS = Set.of(
-            "gold", "white", "gray", "aqua", "purple", "green", "copper", "class", "pale_blue"
-    );
+    private static final Duration ACTIVE_THRESHOLD = ActiveBadgeService.ACTIVE_THRESHOLD;
+    private static final int MAX_MOD_VERSION_LENGTH = 32;
+    private static final String BADGE_VERSION_HEADER = "X-Badge-Version";
+    private static final int MAX_LOOKUP_UUIDS = 1000;
 
     @Autowired
     private WynnExtrasUserRepository userRepository;
 
     @Autowired
-    private DailyUserActivityRepository dailyUserActivityRepository;
+    private AuthService authService;
+
+    @Autowired
+    private HeartbeatBuffer heartbeatBuffer;
+
+    @Autowired
+    private ActiveBadgeService activeBadgeService;
 
     /**
      * Client heartbeat - registers or updates user activity
@@ -56,10 +61,10 @@ public class WynnExtrasUserController {
      * Headers: Username, Server-ID (Mojang auth)
      * Body: { "modVersion": "0.12.1" }
      *
-     * Called on game launch and periodically (every 600 seconds)
+     * Called on game launch and periodically (every 600 seconds).
+     * The heartbeat is buffered and written to the database by {@link HeartbeatBuffer}.
      */
     @PostMapping("/heartbeat")
-    @Transactional
     public ResponseEntity<?> heartbeat(
             @RequestBody HeartbeatRequest request,
             @RequestHeader(value = "Authorization", required = false) String token) {
@@ -69,7 +74,7 @@ public class WynnExtrasUserController {
                     .body(Map.of("status","error","message","Missing session token"));
         }
 
-        AuthService.SessionData session = AuthService.validateSession(token);
+        AuthService.SessionData session = authService.validateSession(token);
 
         if (session == null) {
             System.out.println("Session expired");
@@ -77,79 +82,32 @@ public class WynnExtrasUserController {
                     .body(Map.of("status","error","message","Session expired or invalid"));
         }
 
+        if (request.getModVersion() == null || request.getModVersion().isBlank()
+                || request.getModVersion().trim().length() > MAX_MOD_VERSION_LENGTH) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("status", "error", "message", "Invalid modVersion"));
+        }
+
         String verifiedUuid = session.uuid;
         String verifiedUsername = session.username;
         String modVersion = request.getModVersion().trim();
-        String badgeIconId = normalizeBadgeIconId(request.getBadgeIconId());
-        String badgeColorId = normalizeBadgeColorId(request.getBadgeColorId());
+        String badgeIconId = BadgeCatalog.normalizeBadgeIconId(request.getBadgeIconId());
+        String badgeColorId = BadgeCatalog.normalizeBadgeColorId(request.getBadgeColorId());
         Instant heartbeatAt = Instant.now();
 
-        try {
-            // Find existing user or create new one
-            Optional<WynnExtrasUser> existingUser = userRepository.findByUuid(verifiedUuid);
-
-            if (existingUser.isPresent()) {
-                // Update existing user
-                WynnExtrasUser user = existingUser.get();
-                user.setUsername(verifiedUsername); // Update username in case it changed
-                user.setModVersion(modVersion);
-                user.setBadgeIconId(badgeIconId);
-                user.setBadgeColorId(badgeColorId);
-                user.setLastSeen(heartbeatAt);
-                userRepository.save(user);
-                logger.debug("Updated heartbeat for user {} ({})", verifiedUsername, verifiedUuid);
-            } else {
-                // Create new user
-                WynnExtrasUser user = new WynnExtrasUser(verifiedUuid, verifiedUsername, modVersion);
-                user.setBadgeIconId(badgeIconId);
-                user.setBadgeColorId(badgeColorId);
-                user.setLastSeen(heartbeatAt);
-                user.setCreatedAt(heartbeatAt);
-                userRepository.save(user);
-                logger.info("Registered new WynnExtras user: {} ({})", verifiedUsername, verifiedUuid);
-            }
-
-            recordDailyActivity(verifiedUuid, verifiedUsername, modVersion, heartbeatAt);
-
-            return ResponseEntity.ok(Map.of(
-                "status", "success",
-                "message", "Heartbeat recorded"
-            ));
-        } catch (Exception e) {
-            logger.error("Error processing heartbeat for user {}", verifiedUsername, e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("status", "error", "message", "Error processing heartbeat"));
-        }
-    }
-
-    private void recordDailyActivity(String uuid, String username, String modVersion, Instant heartbeatAt) {
-        LocalDate activityDate = LocalDate.ofInstant(heartbeatAt, ZoneOffset.UTC);
-        DailyUserActivity activity = dailyUserActivityRepository
-                .findByActivityDateAndUserUuid(activityDate, uuid)
-                .orElseGet(() -> new DailyUserActivity(activityDate, uuid, username, modVersion, heartbeatAt));
-
-        if (activity.getId() != null) {
-            activity.recordHeartbeat(username, modVersion, heartbeatAt);
+        if (!heartbeatBuffer.enqueue(verifiedUuid, verifiedUsername, modVersion, badgeIconId, badgeColorId, heartbeatAt)) {
+            logger.warn("Heartbeat buffer full, rejecting heartbeat for user {}", verifiedUsername);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header("Retry-After", "60")
+                    .body(Map.of("status", "error", "message", "Server busy, retry later"));
         }
 
-        dailyUserActivityRepository.save(activity);
-    }
-
-    private String normalizeBadgeIconId(String badgeIconId) {
-        return normalizeCatalogId(badgeIconId, VALID_BADGE_ICON_IDS, DEFAULT_BADGE_ICON_ID);
-    }
+        activeBadgeService.recordHeartbeat(verifiedUuid, verifiedUsername, badgeIconId, badgeColorId, heartbeatAt);
 
-    private String normalizeBadgeColorId(String badgeColorId) {
-        return normalizeCatalogId(badgeColorId, VALID_BADGE_COLOR_IDS, DEFAULT_BADGE_COLOR_ID);
-    }
-
-    private String normalizeCatalogId(String value, Set<String> validIds, String defaultId) {
-        if (value == null) {
-            return defaultId;
-        }
-
-        String normalized = value.trim();
-        return validIds.contains(normalized) ? normalized : defaultId;
+        return ResponseEntity.ok(Map.of(
+            "status", "success",
+            "message", "Heartbeat recorded"
+        ));
     }
 
     /**
@@ -158,24 +116,53 @@ public class WynnExtrasUserController {
      *
      * Returns UUIDs of users active within the last 7 days
      * Used by clients to display star badges on players using the mod
+     *
+     * Served from the precomputed snapshot in {@link ActiveBadgeService}; clients sending
+     * the last ETag in If-None-Match get a 304 while the roster is unchanged.
+     *
+     * Accept: application/vnd.wynnextras.badges returns the compact binary encoding
+     * (see {@link BadgeBinaryCodec}), Accept-Encoding: gzip returns the pre-compressed variant.
      */
     @GetMapping("/active")
-    public ResponseEntity<?> getActiveUsers() {
+    public ResponseEntity<?> getActiveUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!activeBadgeService.isLoaded()) {
+            return badgesNotLoaded();
+        }
         try {
-            Instant cutoff = Instant.now().minus(ACTIVE_THRESHOLD);
-            List<WynnExtrasUser> activeUsers = userRepository.findActiveUsersSince(cutoff);
-            List<String> activeUuids = activeUsers.stream()
-                .map(WynnExtrasUser::getUuid)
-                .toList();
-            List<BadgeInfo> badges = activeUsers.stream()
-                .map(this::toBadgeInfo)
-                .toList();
+            ActiveBadgeService.BadgeSnapshot snapshot = activeBadgeService.getSnapshot();
+            boolean binary = accept != null && accept.contains(BadgeBinaryCodec.CONTENT_TYPE);
+            boolean gzip = acceptsGzip(acceptEncoding);
+
+            // Each representation gets its own strong ETag
+            String versionToken = snapshot.versionToken() + (binary ? "-bin" : "") + (gzip ? "-gz" : "");
+            String etag = "\"" + versionToken + "\"";
+
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(BADGE_VERSION_HEADER, snapshot.versionToken())
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+            }
 
-            return ResponseEntity.ok(Map.of(
-                "uuids", activeUuids,
-                "count", activeUuids.size(),
-                "badges", badges
-            ));
+            byte[] body = binary
+                ? (gzip ? snapshot.binaryGzip() : snapshot.binary())
+                : (gzip ? snapshot.jsonGzip() : snapshot.json());
+
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .header(BADGE_VERSION_HEADER, snapshot.versionToken())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING)
+                .cacheControl(CacheControl.noCache())
+                .contentType(binary ? MediaType.parseMediaType(BadgeBinaryCodec.CONTENT_TYPE) : MediaType.APPLICATION_JSON);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(body);
         } catch (Exception e) {
             logger.error("Error fetching active users", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -183,6 +170,100 @@ public class WynnExtrasUserController {
         }
     }
 
+    /**
+     * Get changes to the active badge list since a version
+     * GET /wynnextras-users/active/changes?since=<version>
+     *
+     * The version comes from the X-Badge-Version header of /active or from a previous call.
+     * Response: { "version": "...", "reset": false, "upserts": [badge...], "removed": [uuid...] }
+     * upserts covers new users and username/icon/color changes, removed covers users that
+     * dropped out of the 7 day window. If reset is true the version is no longer known and
+     * the client has to re-download /active.
+     */
+    @GetMapping("/active/changes")
+    public ResponseEntity<?> getActiveUserChanges(@RequestParam String since) {
+        if (!activeBadgeService.isLoaded()) {
+            return badgesNotLoaded();
+        }
+        try {
+            return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .body(activeBadgeService.getChangesSince(since));
+        } catch (Exception e) {
+            logger.error("Error fetching active user changes", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("status", "error", "message", "Error fetching active user changes"));
+        }
+    }
+
+    /**
+     * Download a Bloom filter over the active UUID set
+     * GET /wynnextras-users/active/filter
+     *
+     * Lets clients test thousands of visible players locally (~1% false positives)
+     * and only send the positives to /active/lookup. Layout and hashing are described
+     * in {@link UuidBloomFilter}. Supports If-None-Match like /active.
+     */
+    @GetMapping("/active/filter")
+    public ResponseEntity<?> getActiveUserFilter(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (!activeBadgeService.isLoaded()) {
+            return badgesNotLoaded();
+        }
+        try {
+            ActiveBadgeService.BadgeSnapshot snapshot = activeBadgeService.getSnapshot();
+            String etag = "\"" + snapshot.versionToken() + "-bloom\"";
+
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .header(BADGE_VERSION_HEADER, snapshot.versionToken())
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+            }
+
+            return ResponseEntity.ok()
+                .eTag(etag)
+                .header(BADGE_VERSION_HEADER, snapshot.versionToken())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.parseMediaType(UuidBloomFilter.CONTENT_TYPE))
+                .body(snapshot.bloomFilter());
+        } catch (Exception e) {
+            logger.error("Error fetching active user filter", e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("status", "error", "message", "Error fetching active user filter"));
+        }
+    }
+
+    /**
+     * Exact lookup for UUIDs that matched the Bloom filter
+     * POST /wynnextras-users/active/lookup
+     *
+     * Body: { "uuids": ["...", ...] } (at most 1000)
+     * Response: { "badges": [badge...], "count": n } for the UUIDs that are active users
+     */
+    @PostMapping("/active/lookup")
+    public ResponseEntity<?> lookupActiveUsers(@RequestBody LookupRequest request) {
+        if (request.getUuids() == null || request.getUuids().isEmpty()) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("status", "error", "message", "No uuids provided"));
+        }
+        if (request.getUuids().size() > MAX_LOOKUP_UUIDS) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("status", "error", "message", "Too many uuids (max " + MAX_LOOKUP_UUIDS + ")"));
+        }
+
+        if (!activeBadgeService.isLoaded()) {
+            return badgesNotLoaded();
+        }
+
+        List<ActiveBadgeService.BadgeInfo> badges = activeBadgeService.lookup(request.getUuids());
+        return ResponseEntity.ok(Map.of(
+            "badges", badges,
+            "count", badges.size()
+        ));
+    }
+
     /**
      * Get detailed info about active users (admin endpoint)
      * GET /wynnextras-users/active/details
@@ -199,8 +280,8 @@ public class WynnExtrasUserController {
                         u.getUsername(),
                         u.getModVersion(),
                         u.getLastSeen().toEpochMilli(),
-                        normalizeBadgeIconId(u.getBadgeIconId()),
-                        normalizeBadgeColorId(u.getBadgeColorId())
+                        BadgeCatalog.normalizeBadgeIconId(u.getBadgeIconId()),
+                        BadgeCatalog.normalizeBadgeColorId(u.getBadgeColorId())
                 ))
                 .toList();
 
@@ -238,6 +319,46 @@ public class WynnExtrasUserController {
         }
     }
 
+    private static ResponseEntity<?> badgesNotLoaded() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header("Retry-After", "10")
+            .body(Map.of("status", "error", "message", "Active badge list is still loading, retry later"));
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip: listed (or matched by *) with a q-value
+     * above zero, so "gzip;q=0" is a refusal.
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzipQuality = null;
+        Double wildcardQuality = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase();
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.startsWith("q=") || param.startsWith("Q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipQuality = quality;
+            } else if (name.equals("*")) {
+                wildcardQuality = quality;
+            }
+        }
+        Double quality = gzipQuality != null ? gzipQuality : wildcardQuality;
+        return quality != null && quality > 0.0;
+    }
+
     // Request/Response DTOs
 
     public static class HeartbeatRequest {
@@ -255,6 +376,13 @@ public class WynnExtrasUserController {
         public void setBadgeColorId(String badgeColorId) { this.badgeColorId = badgeColorId; }
     }
 
+    public static class LookupRequest {
+        private List<String> uuids;
+
+        public List<String> getUuids() { return uuids; }
+        public void setUuids(List<String> uuids) { this.uuids = uuids; }
+    }
+
     public static class UserInfo {
         private String uuid;
         private String username;
@@ -280,34 +408,6 @@ public class WynnExtrasUserController {
         public String getBadgeColorId() { return badgeColorId; }
     }
 
-    public static class BadgeInfo {
-        private String uuid;
-        private String username;
-        private String iconId;
-        private String colorId;
-
-        public BadgeInfo(String uuid, String username, String iconId, String colorId) {
-            this.uuid = uuid;
-            this.username = username;
-            this.iconId = iconId;
-            this.colorId = colorId;
-        }
-
-        public String getUuid() { return uuid; }
-        public String getUsername() { return username; }
-        public String getIconId() { return iconId; }
-        public String getColorId() { return colorId; }
-    }
-
-    private BadgeInfo toBadgeInfo(WynnExtrasUser user) {
-        return new BadgeInfo(
-                user.getUuid(),
-                user.getUsername(),
-                normalizeBadgeIconId(user.getBadgeIconId()),
-                normalizeBadgeColorId(user.getBadgeColorId())
-        );
-    }
-
     // Helper Map class for response building
     private static class Map<K, V> extends HashMap<K, V> {
         public static <K, V> Map<K, V> of(K k1, V v1, K k2, V v2) {
@@ -0,0 +1,55 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Persisted session created after a successful Mojang verification.
+ * Only the SHA-256 hash of the token is stored, never the token itself.
+ */
+@Entity
+@Table(name = "auth_session", indexes = {
+        @Index(name = "idx_auth_session_expires_at", columnList = "expires_at")
+})
+public class AuthSession {
+    @Id
+    @Column(name = "token_hash", nullable = false, length = 64)
+    private String tokenHash;
+
+    @Column(name = "player_uuid", nullable = false, length = 36)
+    private String playerUuid;
+
+    @Column(nullable = false, length = 32)
+    private String username;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public AuthSession() {}
+
+    public AuthSession(String tokenHash, String playerUuid, String username, Instant expiresAt) {
+        this.tokenHash = tokenHash;
+        this.playerUuid = playerUuid;
+        this.username = username;
+        this.createdAt = Instant.now();
+        this.expiresAt = expiresAt;
+    }
+
+    public String getTokenHash() { return tokenHash; }
+    public void setTokenHash(String tokenHash) { this.tokenHash = tokenHash; }
+
+    public String getPlayerUuid() { return playerUuid; }
+    public void setPlayerUuid(String playerUuid) { this.playerUuid = playerUuid; }
+
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+
+    public Instant getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Instant createdAt) { this.createdAt = createdAt; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
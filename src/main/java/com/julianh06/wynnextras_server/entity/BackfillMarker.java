@@ -0,0 +1,32 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Completion record of a startup backfill. Written in the backfill's own transaction, so a
+ * backfill that never ran or failed partway is retried instead of being inferred done from
+ * its target table having rows (which live writes can add first).
+ */
+@Entity
+@Table(name = "backfill_marker")
+public class BackfillMarker {
+    @Id
+    @Column(name = "name", nullable = false, length = 64)
+    private String name;
+
+    @Column(name = "completed_at", nullable = false)
+    private Instant completedAt;
+
+    public BackfillMarker() {}
+
+    public BackfillMarker(String name, Instant completedAt) {
+        this.name = name;
+        this.completedAt = completedAt;
+    }
+
+    public String getName() { return name; }
+
+    public Instant getCompletedAt() { return completedAt; }
+    public void setCompletedAt(Instant completedAt) { this.completedAt = completedAt; }
+}
@@ -0,0 +1,53 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Retention counts for one UTC day, derived from daily_user_activity by the retention engine.
+ */
+@Entity
+@Table(name = "daily_retention_stats")
+public class DailyRetentionStats {
+    @Id
+    @Column(name = "activity_date", nullable = false)
+    private LocalDate activityDate;
+
+    @Column(nullable = false)
+    private long newUsers;
+
+    @Column(nullable = false)
+    private long returnedAfterGap;
+
+    @Column(nullable = false)
+    private long d1Retained;
+
+    @Column(nullable = false)
+    private Instant computedAt;
+
+    public DailyRetentionStats() {}
+
+    public DailyRetentionStats(LocalDate activityDate, long newUsers, long returnedAfterGap, long d1Retained, Instant computedAt) {
+        this.activityDate = activityDate;
+        this.newUsers = newUsers;
+        this.returnedAfterGap = returnedAfterGap;
+        this.d1Retained = d1Retained;
+        this.computedAt = computedAt;
+    }
+
+    public LocalDate getActivityDate() { return activityDate; }
+    public void setActivityDate(LocalDate activityDate) { this.activityDate = activityDate; }
+
+    public long getNewUsers() { return newUsers; }
+    public void setNewUsers(long newUsers) { this.newUsers = newUsers; }
+
+    public long getReturnedAfterGap() { return returnedAfterGap; }
+    public void setReturnedAfterGap(long returnedAfterGap) { this.returnedAfterGap = returnedAfterGap; }
+
+    public long getD1Retained() { return d1Retained; }
+    public void setD1Retained(long d1Retained) { this.d1Retained = d1Retained; }
+
+    public Instant getComputedAt() { return computedAt; }
+    public void setComputedAt(Instant computedAt) { this.computedAt = computedAt; }
+}
@@ -8,7 +8,8 @@ import java.time.LocalDate;
 @Table(name = "daily_user_activity", uniqueConstraints = {
         @UniqueConstraint(columnNames = {"activity_date", "user_uuid"})
 }, indexes = {
-        @Index(name = "idx_daily_activity_user_last_heartbeat", columnList = "user_uuid,last_heartbeat_at")
+        @Index(name = "idx_daily_activity_user_last_heartbeat", columnList = "user_uuid,last_heartbeat_at"),
+        @Index(name = "idx_daily_activity_user_date", columnList = "user_uuid,activity_date")
 })
 public class DailyUserActivity {
     @Id
@@ -48,11 +49,28 @@ public class DailyUserActivity {
         this.lastHeartbeatAt = heartbeatAt;
     }
 
+    public DailyUserActivity(LocalDate activityDate, String userUuid, String username, String modVersion,
+                             Instant firstHeartbeatAt, Instant lastHeartbeatAt, long heartbeatCount) {
+        this.activityDate = activityDate;
+        this.userUuid = userUuid;
+        this.username = username;
+        this.modVersion = modVersion;
+        this.heartbeatCount = heartbeatCount;
+        this.firstHeartbeatAt = firstHeartbeatAt;
+        this.lastHeartbeatAt = lastHeartbeatAt;
+    }
+
     public void recordHeartbeat(String username, String modVersion, Instant heartbeatAt) {
+        recordHeartbeats(username, modVersion, 1, heartbeatAt);
+    }
+
+    public void recordHeartbeats(String username, String modVersion, long count, Instant lastHeartbeatAt) {
         this.username = username;
         this.modVersion = modVersion;
-        this.heartbeatCount++;
-        this.lastHeartbeatAt = heartbeatAt;
+        this.heartbeatCount += count;
+        if (this.lastHeartbeatAt == null || lastHeartbeatAt.isAfter(this.lastHeartbeatAt)) {
+            this.lastHeartbeatAt = lastHeartbeatAt;
+        }
     }
 
     public Long getId() { return id; }
@@ -0,0 +1,56 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * A revoked signed session token (keyed by its signature) or every token of a player issued
+ * at or before {@code revokedBefore} (keyed by the player UUID). Rows are deleted once
+ * {@code expiresAt} has passed, by then every token they cover has expired anyway.
+ */
+@Entity
+@Table(name = "session_revocation", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"kind", "revocation_key"})
+}, indexes = {
+        @Index(name = "idx_session_revocation_revoked_before", columnList = "revoked_before"),
+        @Index(name = "idx_session_revocation_expires_at", columnList = "expires_at")
+})
+public class SessionRevocation {
+    public enum Kind { TOKEN, PLAYER }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "kind", nullable = false, length = 8)
+    private Kind kind;
+
+    @Column(name = "revocation_key", nullable = false, length = 64)
+    private String revocationKey;
+
+    @Column(name = "revoked_before", nullable = false)
+    private Instant revokedBefore;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    public SessionRevocation() {}
+
+    public SessionRevocation(Kind kind, String revocationKey) {
+        this.kind = kind;
+        this.revocationKey = revocationKey;
+    }
+
+    public Long getId() { return id; }
+
+    public Kind getKind() { return kind; }
+
+    public String getRevocationKey() { return revocationKey; }
+
+    public Instant getRevokedBefore() { return revokedBefore; }
+    public void setRevokedBefore(Instant revokedBefore) { this.revokedBefore = revokedBefore; }
+
+    public Instant getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(Instant expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,59 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Distinct players seen in one UTC day or ISO week (starting Monday), kept after the raw
+ * sightings of that period are deleted.
+ */
+@Entity
+@Table(name = "wynncraft_sighting_rollup", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"period", "period_start"})
+})
+public class SightingRollup {
+    public enum Period { DAY, WEEK }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period", nullable = false, length = 8)
+    private Period period;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "unique_players", nullable = false)
+    private long uniquePlayers;
+
+    @Column(name = "sample_count", nullable = false)
+    private long sampleCount;
+
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+
+    public SightingRollup() {}
+
+    public SightingRollup(Period period, LocalDate periodStart) {
+        this.period = period;
+        this.periodStart = periodStart;
+    }
+
+    public Long getId() { return id; }
+
+    public Period getPeriod() { return period; }
+
+    public LocalDate getPeriodStart() { return periodStart; }
+
+    public long getUniquePlayers() { return uniquePlayers; }
+    public void setUniquePlayers(long uniquePlayers) { this.uniquePlayers = uniquePlayers; }
+
+    public long getSampleCount() { return sampleCount; }
+    public void setSampleCount(long sampleCount) { this.sampleCount = sampleCount; }
+
+    public Instant getComputedAt() { return computedAt; }
+    public void setComputedAt(Instant computedAt) { this.computedAt = computedAt; }
+}
@@ -0,0 +1,55 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * Usage breakdown of one online player sample (players seen, how many of them are WynnExtras
+ * users with a heartbeat in the 24 hours before it), computed once from the sighting store.
+ */
+@Entity
+@Table(name = "usage_sample_summary", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"sampled_at"})
+})
+public class UsageSampleSummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sampled_at", nullable = false)
+    private Instant sampledAt;
+
+    @Column(name = "visible_players", nullable = false)
+    private long visiblePlayers;
+
+    @Column(name = "wynnextras_users", nullable = false)
+    private long wynnExtrasUsers;
+
+    @Column(name = "usage_percent", nullable = false)
+    private double usagePercent;
+
+    @Column(name = "computed_at", nullable = false)
+    private Instant computedAt;
+
+    public UsageSampleSummary() {}
+
+    public UsageSampleSummary(Instant sampledAt) {
+        this.sampledAt = sampledAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Instant getSampledAt() { return sampledAt; }
+
+    public long getVisiblePlayers() { return visiblePlayers; }
+    public void setVisiblePlayers(long visiblePlayers) { this.visiblePlayers = visiblePlayers; }
+
+    public long getWynnExtrasUsers() { return wynnExtrasUsers; }
+    public void setWynnExtrasUsers(long wynnExtrasUsers) { this.wynnExtrasUsers = wynnExtrasUsers; }
+
+    public double getUsagePercent() { return usagePercent; }
+    public void setUsagePercent(double usagePercent) { this.usagePercent = usagePercent; }
+
+    public Instant getComputedAt() { return computedAt; }
+    public void setComputedAt(Instant computedAt) { this.computedAt = computedAt; }
+}
@@ -0,0 +1,82 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDate;
+
+/**
+ * Per-user activity index derived from daily_user_activity: the first active day, the most
+ * recent active day and the active day before that. Lets retention counts for a day be
+ * answered with indexed lookups instead of scanning the activity history.
+ */
+@Entity
+@Table(name = "user_first_seen", indexes = {
+        @Index(name = "idx_user_first_seen_first_date", columnList = "first_seen_date"),
+        @Index(name = "idx_user_first_seen_last_date", columnList = "last_active_date,previous_active_date")
+})
+public class UserFirstSeen implements Persistable<String> {
+    @Id
+    @Column(name = "user_uuid", nullable = false, length = 36)
+    private String userUuid;
+
+    @Column(name = "first_seen_date", nullable = false)
+    private LocalDate firstSeenDate;
+
+    @Column(name = "last_active_date", nullable = false)
+    private LocalDate lastActiveDate;
+
+    @Column(name = "previous_active_date")
+    private LocalDate previousActiveDate;
+
+    // Avoids a SELECT per save() for the assigned id; reset once loaded or persisted
+    @Transient
+    private boolean isNew;
+
+    public UserFirstSeen() {}
+
+    public UserFirstSeen(String userUuid, LocalDate firstSeenDate, LocalDate lastActiveDate, LocalDate previousActiveDate) {
+        this.userUuid = userUuid;
+        this.firstSeenDate = firstSeenDate;
+        this.lastActiveDate = lastActiveDate;
+        this.previousActiveDate = previousActiveDate;
+        this.isNew = true;
+    }
+
+    /**
+     * Apply an active day. Days are normally recorded in order; an older day only
+     * moves the first-seen date back.
+     */
+    public void recordActiveDay(LocalDate day) {
+        if (day.isAfter(lastActiveDate)) {
+            previousActiveDate = lastActiveDate;
+            lastActiveDate = day;
+        } else if (day.isBefore(lastActiveDate) && (previousActiveDate == null || day.isAfter(previousActiveDate))) {
+            previousActiveDate = day;
+        }
+        if (day.isBefore(firstSeenDate)) {
+            firstSeenDate = day;
+        }
+    }
+
+    @Override
+    public String getId() { return userUuid; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
+
+    public String getUserUuid() { return userUuid; }
+
+    public LocalDate getFirstSeenDate() { return firstSeenDate; }
+    public void setFirstSeenDate(LocalDate firstSeenDate) { this.firstSeenDate = firstSeenDate; }
+
+    public LocalDate getLastActiveDate() { return lastActiveDate; }
+    public void setLastActiveDate(LocalDate lastActiveDate) { this.lastActiveDate = lastActiveDate; }
+
+    public LocalDate getPreviousActiveDate() { return previousActiveDate; }
+    public void setPreviousActiveDate(LocalDate previousActiveDate) { this.previousActiveDate = previousActiveDate; }
+}
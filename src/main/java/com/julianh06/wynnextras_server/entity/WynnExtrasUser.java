@@ -9,7 +9,9 @@ import java.time.Instant;
  * and will have their star badge displayed.
  */
 @Entity
-@Table(name = "wynnextras_user")
+@Table(name = "wynnextras_user", indexes = {
+        @Index(name = "idx_wynnextras_user_last_seen", columnList = "last_seen")
+})
 public class WynnExtrasUser {
     @Id
     @Column(nullable = false, length = 36)
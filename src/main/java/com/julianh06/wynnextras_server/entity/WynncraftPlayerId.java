@@ -0,0 +1,44 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import org.springframework.data.domain.Persistable;
+
+/**
+ * Dense int id interned for a Wynncraft player UUID, used as the bit position in
+ * {@link WynncraftSightingSample} bitmaps. Ids are assigned in order and never reused.
+ */
+@Entity
+@Table(name = "wynncraft_player_id", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"player_uuid"})
+})
+public class WynncraftPlayerId implements Persistable<Integer> {
+    @Id
+    private Integer id;
+
+    @Column(name = "player_uuid", nullable = false, length = 32)
+    private String playerUuid;
+
+    // Ids are only ever inserted, so skip the SELECT that save() would do for an assigned id
+    @Transient
+    private boolean isNew;
+
+    public WynncraftPlayerId() {}
+
+    public WynncraftPlayerId(int id, String playerUuid) {
+        this.id = id;
+        this.playerUuid = playerUuid;
+        this.isNew = true;
+    }
+
+    @Override
+    public Integer getId() { return id; }
+
+    @Override
+    public boolean isNew() { return isNew; }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() { this.isNew = false; }
+
+    public String getPlayerUuid() { return playerUuid; }
+}
@@ -0,0 +1,43 @@
+package com.julianh06.wynnextras_server.entity;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+/**
+ * One online player sample of the bitmap sighting store: the players seen, as a serialized
+ * {@link com.julianh06.wynnextras_server.util.IdBitmap} of {@link WynncraftPlayerId} ids.
+ */
+@Entity
+@Table(name = "wynncraft_sighting_sample", uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"sampled_at"})
+})
+public class WynncraftSightingSample {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sampled_at", nullable = false)
+    private Instant sampledAt;
+
+    @Column(name = "player_count", nullable = false)
+    private int playerCount;
+
+    @Column(name = "player_bitmap", nullable = false, length = 16 * 1024 * 1024)
+    private byte[] playerBitmap;
+
+    public WynncraftSightingSample() {}
+
+    public WynncraftSightingSample(Instant sampledAt) {
+        this.sampledAt = sampledAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Instant getSampledAt() { return sampledAt; }
+
+    public int getPlayerCount() { return playerCount; }
+    public void setPlayerCount(int playerCount) { this.playerCount = playerCount; }
+
+    public byte[] getPlayerBitmap() { return playerBitmap; }
+    public void setPlayerBitmap(byte[] playerBitmap) { this.playerBitmap = playerBitmap; }
+}
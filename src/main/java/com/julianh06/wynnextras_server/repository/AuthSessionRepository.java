@@ -0,0 +1,19 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.AuthSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface AuthSessionRepository extends JpaRepository<AuthSession, String> {
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AuthSession s WHERE s.expiresAt < :cutoff")
+    int deleteExpiredBefore(@Param("cutoff") Instant cutoff);
+}
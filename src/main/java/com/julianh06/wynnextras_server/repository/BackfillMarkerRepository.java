@@ -0,0 +1,9 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.BackfillMarker;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BackfillMarkerRepository extends JpaRepository<BackfillMarker, String> {
+}
@@ -0,0 +1,11 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.DailyRetentionStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface DailyRetentionStatsRepository extends JpaRepository<DailyRetentionStats, LocalDate> {
+}
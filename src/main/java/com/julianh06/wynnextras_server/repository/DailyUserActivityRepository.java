@@ -1,19 +1,27 @@
 package com.julianh06.wynnextras_server.repository;
 
 import com.julianh06.wynnextras_server.entity.DailyUserActivity;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface DailyUserActivityRepository extends JpaRepository<DailyUserActivity, Long> {
     Optional<DailyUserActivity> findByActivityDateAndUserUuid(LocalDate activityDate, String userUuid);
 
+    List<DailyUserActivity> findByActivityDateAndUserUuidIn(LocalDate activityDate, Collection<String> userUuids);
+
     @Query("""
         SELECT d.activityDate, COUNT(d), COALESCE(SUM(d.heartbeatCount), 0)
         FROM DailyUserActivity d
@@ -22,42 +30,40 @@ public interface DailyUserActivityRepository extends JpaRepository<DailyUserActi
         """)
     List<Object[]> findDailyHeartbeatStats();
 
+    /**
+     * Every (user, day) pair ordered by user and day, for single-pass sweeps over activity history.
+     * Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
     @Query("""
-        SELECT COUNT(d)
+        SELECT d.userUuid AS userUuid, d.activityDate AS activityDate
         FROM DailyUserActivity d
-        WHERE d.activityDate = :activityDate
-          AND d.userUuid NOT IN (
-              SELECT prev.userUuid FROM DailyUserActivity prev WHERE prev.activityDate < :activityDate
-          )
+        ORDER BY d.userUuid ASC, d.activityDate ASC
         """)
-    long countFirstSeenOnDate(@Param("activityDate") LocalDate activityDate);
+    Stream<UserActivityDay> streamUserActivityDays();
 
-    @Query("""
-        SELECT COUNT(d)
-        FROM DailyUserActivity d
-        WHERE d.activityDate = :activityDate
-          AND d.userUuid IN (
-              SELECT old.userUuid FROM DailyUserActivity old WHERE old.activityDate < :returnCutoff
-          )
-          AND d.userUuid NOT IN (
-              SELECT recent.userUuid
-              FROM DailyUserActivity recent
-              WHERE recent.activityDate >= :returnCutoff
-                AND recent.activityDate < :activityDate
-          )
-        """)
-    long countReturnedAfterGap(@Param("activityDate") LocalDate activityDate, @Param("returnCutoff") LocalDate returnCutoff);
+    @Query("SELECT DISTINCT d.userUuid FROM DailyUserActivity d WHERE d.activityDate = :activityDate")
+    List<String> findUserUuidsByActivityDate(@Param("activityDate") LocalDate activityDate);
 
+    /**
+     * Heartbeat windows (first to last heartbeat of a day) that overlap [from, to)
+     */
     @Query("""
-        SELECT COUNT(d)
+        SELECT d.userUuid AS userUuid, d.firstHeartbeatAt AS firstHeartbeatAt, d.lastHeartbeatAt AS lastHeartbeatAt
         FROM DailyUserActivity d
-        WHERE d.activityDate = :cohortDate
-          AND EXISTS (
-              SELECT later.id
-              FROM DailyUserActivity later
-              WHERE later.userUuid = d.userUuid
-                AND later.activityDate = :returnDate
-          )
+        WHERE d.lastHeartbeatAt >= :from
+          AND d.firstHeartbeatAt < :to
         """)
-    long countCohortReturnedOnDate(@Param("cohortDate") LocalDate cohortDate, @Param("returnDate") LocalDate returnDate);
+    List<HeartbeatWindow> findHeartbeatWindowsBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    interface HeartbeatWindow {
+        String getUserUuid();
+        Instant getFirstHeartbeatAt();
+        Instant getLastHeartbeatAt();
+    }
+
+    interface UserActivityDay {
+        String getUserUuid();
+        LocalDate getActivityDate();
+    }
 }
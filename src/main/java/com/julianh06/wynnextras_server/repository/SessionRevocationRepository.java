@@ -0,0 +1,28 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.SessionRevocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SessionRevocationRepository extends JpaRepository<SessionRevocation, Long> {
+    Optional<SessionRevocation> findByKindAndRevocationKey(SessionRevocation.Kind kind, String revocationKey);
+
+    /**
+     * Live revocations written at or after {@code since}
+     */
+    List<SessionRevocation> findByRevokedBeforeGreaterThanEqualAndExpiresAtAfter(Instant since, Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM SessionRevocation r WHERE r.expiresAt < :cutoff")
+    int deleteExpiredBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,22 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.SightingRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SightingRollupRepository extends JpaRepository<SightingRollup, Long> {
+    Optional<SightingRollup> findByPeriodAndPeriodStart(SightingRollup.Period period, LocalDate periodStart);
+
+    List<SightingRollup> findByPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(
+            SightingRollup.Period period, LocalDate from, LocalDate to);
+
+    @Query("SELECT MAX(r.periodStart) FROM SightingRollup r WHERE r.period = :period")
+    LocalDate findLastPeriodStart(@Param("period") SightingRollup.Period period);
+}
@@ -0,0 +1,13 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.UsageSampleSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface UsageSampleSummaryRepository extends JpaRepository<UsageSampleSummary, Long> {
+    List<UsageSampleSummary> findBySampledAtGreaterThanEqualAndSampledAtLessThanOrderBySampledAtAsc(Instant start, Instant end);
+}
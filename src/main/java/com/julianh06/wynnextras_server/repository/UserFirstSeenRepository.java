@@ -0,0 +1,32 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.UserFirstSeen;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface UserFirstSeenRepository extends JpaRepository<UserFirstSeen, String> {
+    long countByFirstSeenDate(LocalDate firstSeenDate);
+
+    /**
+     * Users active on the day whose previous active day is before the cutoff
+     */
+    @Query("""
+        SELECT COUNT(u)
+        FROM UserFirstSeen u
+        WHERE u.lastActiveDate = :activityDate
+          AND u.previousActiveDate < :returnCutoff
+        """)
+    long countReturnedAfterGap(@Param("activityDate") LocalDate activityDate, @Param("returnCutoff") LocalDate returnCutoff);
+
+    long countByLastActiveDateAndPreviousActiveDate(LocalDate lastActiveDate, LocalDate previousActiveDate);
+
+    /**
+     * Users with no activity on or after the cutoff (churned)
+     */
+    long countByLastActiveDateBefore(LocalDate cutoff);
+}
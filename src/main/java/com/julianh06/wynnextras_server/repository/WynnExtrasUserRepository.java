@@ -1,14 +1,19 @@
 package com.julianh06.wynnextras_server.repository;
 
 import com.julianh06.wynnextras_server.entity.WynnExtrasUser;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface WynnExtrasUserRepository extends JpaRepository<WynnExtrasUser, String> {
@@ -40,4 +45,105 @@ public interface WynnExtrasUserRepository extends JpaRepository<WynnExtrasUser,
      */
     @Query("SELECT COUNT(u) FROM WynnExtrasUser u WHERE u.lastSeen > :cutoff")
     long countActiveUsersSince(@Param("cutoff") Instant cutoff);
+
+    /**
+     * Total users and users seen within the last 1/3/5/7/10/14 days before {@code now}, all in
+     * one scan (conditional aggregation instead of one count query per window).
+     */
+    default ActivityWindowCounts countActivityWindows(Instant now) {
+        return countActivityWindows(
+                now.minus(1, ChronoUnit.DAYS), now.minus(3, ChronoUnit.DAYS), now.minus(5, ChronoUnit.DAYS),
+                now.minus(7, ChronoUnit.DAYS), now.minus(10, ChronoUnit.DAYS), now.minus(14, ChronoUnit.DAYS));
+    }
+
+    @Query("""
+        SELECT COUNT(u) AS total,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff1d THEN 1 ELSE 0 END), 0) AS active1d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff3d THEN 1 ELSE 0 END), 0) AS active3d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff5d THEN 1 ELSE 0 END), 0) AS active5d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff7d THEN 1 ELSE 0 END), 0) AS active7d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff10d THEN 1 ELSE 0 END), 0) AS active10d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff14d THEN 1 ELSE 0 END), 0) AS active14d
+        FROM WynnExtrasUser u
+        """)
+    ActivityWindowCounts countActivityWindows(
+            @Param("cutoff1d") Instant cutoff1d, @Param("cutoff3d") Instant cutoff3d, @Param("cutoff5d") Instant cutoff5d,
+            @Param("cutoff7d") Instant cutoff7d, @Param("cutoff10d") Instant cutoff10d, @Param("cutoff14d") Instant cutoff14d);
+
+    /**
+     * {@link #countActivityWindows(Instant)} per mod version, users without a version are skipped
+     */
+    default List<VersionActivityWindowCounts> countActivityWindowsByVersion(Instant now) {
+        return countActivityWindowsByVersion(
+                now.minus(1, ChronoUnit.DAYS), now.minus(3, ChronoUnit.DAYS), now.minus(5, ChronoUnit.DAYS),
+                now.minus(7, ChronoUnit.DAYS), now.minus(10, ChronoUnit.DAYS), now.minus(14, ChronoUnit.DAYS));
+    }
+
+    @Query("""
+        SELECT u.modVersion AS modVersion,
+               COUNT(u) AS total,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff1d THEN 1 ELSE 0 END), 0) AS active1d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff3d THEN 1 ELSE 0 END), 0) AS active3d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff5d THEN 1 ELSE 0 END), 0) AS active5d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff7d THEN 1 ELSE 0 END), 0) AS active7d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff10d THEN 1 ELSE 0 END), 0) AS active10d,
+               COALESCE(SUM(CASE WHEN u.lastSeen > :cutoff14d THEN 1 ELSE 0 END), 0) AS active14d
+        FROM WynnExtrasUser u
+        WHERE u.modVersion IS NOT NULL AND TRIM(u.modVersion) <> ''
+        GROUP BY u.modVersion
+        """)
+    List<VersionActivityWindowCounts> countActivityWindowsByVersion(
+            @Param("cutoff1d") Instant cutoff1d, @Param("cutoff3d") Instant cutoff3d, @Param("cutoff5d") Instant cutoff5d,
+            @Param("cutoff7d") Instant cutoff7d, @Param("cutoff10d") Instant cutoff10d, @Param("cutoff14d") Instant cutoff14d);
+
+    /**
+     * Only the columns analytic passes count over, without loading entities into the persistence
+     * context. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+        SELECT u.uuid AS uuid, u.modVersion AS modVersion, u.lastSeen AS lastSeen, u.createdAt AS createdAt
+        FROM WynnExtrasUser u
+        """)
+    Stream<UserStatsRow> streamUserStats();
+
+    /**
+     * Username, dates and version of every user ordered by creation date, for listing all users
+     * without loading them at once. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+        SELECT u.username AS username, u.createdAt AS createdAt, u.lastSeen AS lastSeen, u.modVersion AS modVersion
+        FROM WynnExtrasUser u
+        ORDER BY u.createdAt ASC NULLS FIRST
+        """)
+    Stream<UserListRow> streamUserList();
+
+    interface UserListRow {
+        String getUsername();
+        Instant getCreatedAt();
+        Instant getLastSeen();
+        String getModVersion();
+    }
+
+    interface ActivityWindowCounts {
+        long getTotal();
+        long getActive1d();
+        long getActive3d();
+        long getActive5d();
+        long getActive7d();
+        long getActive10d();
+        long getActive14d();
+    }
+
+    interface VersionActivityWindowCounts extends ActivityWindowCounts {
+        String getModVersion();
+    }
+
+    interface UserStatsRow {
+        String getUuid();
+        String getModVersion();
+        Instant getLastSeen();
+        Instant getCreatedAt();
+    }
 }
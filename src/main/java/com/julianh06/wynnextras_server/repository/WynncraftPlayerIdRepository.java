@@ -0,0 +1,26 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.WynncraftPlayerId;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+@Repository
+public interface WynncraftPlayerIdRepository extends JpaRepository<WynncraftPlayerId, Integer> {
+    /**
+     * Every interned id. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT p.id AS id, p.playerUuid AS playerUuid FROM WynncraftPlayerId p")
+    Stream<PlayerIdRow> streamAll();
+
+    interface PlayerIdRow {
+        int getId();
+        String getPlayerUuid();
+    }
+}
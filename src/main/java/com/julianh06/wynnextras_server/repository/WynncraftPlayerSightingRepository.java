@@ -1,14 +1,19 @@
 package com.julianh06.wynnextras_server.repository;
 
 import com.julianh06.wynnextras_server.entity.WynncraftPlayerSighting;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface WynncraftPlayerSightingRepository extends JpaRepository<WynncraftPlayerSighting, Long> {
@@ -31,6 +36,13 @@ public interface WynncraftPlayerSightingRepository extends JpaRepository<Wynncra
             @Param("end") Instant end,
             @Param("activityDate") LocalDate activityDate);
 
+    @Modifying
+    @Query("DELETE FROM WynncraftPlayerSighting s WHERE s.sampledAt >= :start AND s.sampledAt < :end")
+    int deleteBySampledAtBetween(@Param("start") Instant start, @Param("end") Instant end);
+
+    @Query("SELECT MIN(s.sampledAt) FROM WynncraftPlayerSighting s")
+    Instant findFirstSampledAt();
+
     @Query("""
             SELECT COUNT(DISTINCT s.playerUuid)
             FROM WynncraftPlayerSighting s
@@ -59,6 +71,18 @@ public interface WynncraftPlayerSightingRepository extends JpaRepository<Wynncra
             @Param("start") Instant start,
             @Param("end") Instant end);
 
+    /**
+     * Every sighting ordered by sample time. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT s.playerUuid AS playerUuid, s.sampledAt AS sampledAt FROM WynncraftPlayerSighting s ORDER BY s.sampledAt ASC")
+    Stream<SightingRow> streamAllOrderBySampledAt();
+
+    interface SightingRow {
+        String getPlayerUuid();
+        Instant getSampledAt();
+    }
+
     interface UsageSampleBreakdownRow {
         Instant getSampledAt();
         long getVisiblePlayers();
@@ -0,0 +1,28 @@
+package com.julianh06.wynnextras_server.repository;
+
+import com.julianh06.wynnextras_server.entity.WynncraftSightingSample;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WynncraftSightingSampleRepository extends JpaRepository<WynncraftSightingSample, Long> {
+    Optional<WynncraftSightingSample> findBySampledAt(Instant sampledAt);
+
+    List<WynncraftSightingSample> findBySampledAtGreaterThanEqualAndSampledAtLessThanOrderBySampledAtAsc(Instant start, Instant end);
+
+    @Query("SELECT MIN(s.sampledAt) FROM WynncraftSightingSample s")
+    Instant findFirstSampledAt();
+
+    @Modifying
+    @Query("DELETE FROM WynncraftSightingSample s WHERE s.sampledAt >= :start AND s.sampledAt < :end")
+    int deleteBySampledAtBetween(@Param("start") Instant start, @Param("end") Instant end);
+
+    long countBySampledAtGreaterThanEqualAndSampledAtLessThan(Instant start, Instant end);
+}
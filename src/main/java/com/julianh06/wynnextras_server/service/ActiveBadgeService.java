@@ -0,0 +1,336 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.julianh06.wynnextras_server.entity.WynnExtrasUser;
+import com.julianh06.wynnextras_server.repository.WynnExtrasUserRepository;
+import com.julianh06.wynnextras_server.util.BadgeBinaryCodec;
+import com.julianh06.wynnextras_server.util.BadgeCatalog;
+import com.julianh06.wynnextras_server.util.UuidBloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the active badge list (users seen within {@link #ACTIVE_THRESHOLD}) in memory.
+ *
+ * The roster is updated from heartbeats as they arrive and re-serialized at most every
+ * {@link #REBUILD_INTERVAL_MS} when something visible changed. Every rebuild bumps the
+ * version, which is exposed as an ETag so polling clients can get 304s.
+ *
+ * Each rebuild also records the diff against the previous snapshot (new users, username or
+ * badge icon/color changes, expirations) in a bounded change log, so clients that already
+ * hold a recent version can fetch only the changes via {@link #getChangesSince(String)}.
+ *
+ * The roster is loaded from the database before the web server starts; until a load has
+ * succeeded {@link #isLoaded()} is false and the badge endpoints answer 503, so clients never
+ * cache an empty list under a valid version.
+ */
+@Service
+public class ActiveBadgeService {
+    private static final Logger logger = LoggerFactory.getLogger(ActiveBadgeService.class);
+    public static final Duration ACTIVE_THRESHOLD = Duration.ofDays(7);
+    private static final long REBUILD_INTERVAL_MS = 10_000;
+    private static final long DATABASE_RESYNC_INTERVAL_MS = 15 * 60 * 1000;
+    private static final long INITIAL_LOAD_RETRY_INTERVAL_MS = 10_000;
+    private static final int MAX_CHANGE_LOG_ENTRIES = 720;
+    private static final double BLOOM_FALSE_POSITIVE_RATE = 0.01;
+
+    private final WynnExtrasUserRepository userRepository;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, ActiveBadge> activeBadges = new ConcurrentHashMap<>();
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private final AtomicLong version = new AtomicLong();
+    // Distinguishes versions across restarts so a stale ETag never matches a fresh snapshot
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private volatile BadgeSnapshot snapshot;
+    private volatile boolean loaded;
+    private final Deque<BadgeChangeSet> changeLog = new ArrayDeque<>();
+
+    public ActiveBadgeService(WynnExtrasUserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public record ActiveBadge(String uuid, String username, String iconId, String colorId, Instant lastSeen) {
+        boolean sameBadge(ActiveBadge other) {
+            return other != null
+                    && Objects.equals(username, other.username)
+                    && Objects.equals(iconId, other.iconId)
+                    && Objects.equals(colorId, other.colorId);
+        }
+    }
+
+    public record BadgeInfo(String uuid, String username, String iconId, String colorId) {}
+
+    /**
+     * One built version of the roster. Every representation (JSON, binary, their gzip
+     * variants and the membership Bloom filter) is encoded once at build time and served as-is.
+     */
+    public record BadgeSnapshot(
+            long version,
+            String versionToken,
+            Instant builtAt,
+            List<ActiveBadge> badges,
+            byte[] json,
+            byte[] jsonGzip,
+            byte[] binary,
+            byte[] binaryGzip,
+            byte[] bloomFilter) {
+        public String etag() {
+            return "\"" + versionToken + "\"";
+        }
+    }
+
+    /**
+     * Changes between two versions. When {@code reset} is set the requested version is unknown
+     * (too old or from before a restart) and the client has to re-download the full list.
+     */
+    public record BadgeChanges(String version, boolean reset, List<BadgeInfo> upserts, List<String> removed) {}
+
+    private record BadgeChangeSet(long version, List<BadgeInfo> upserts, List<String> removed) {}
+
+    @PostConstruct
+    public void loadRoster() {
+        resyncFromDatabase();
+    }
+
+    /**
+     * Retry the initial load if the database was not reachable at startup.
+     */
+    @Scheduled(fixedDelay = INITIAL_LOAD_RETRY_INTERVAL_MS, initialDelay = INITIAL_LOAD_RETRY_INTERVAL_MS)
+    public void retryInitialLoad() {
+        if (!loaded) {
+            resyncFromDatabase();
+        }
+    }
+
+    /**
+     * Whether the roster has been loaded from the database at least once.
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Apply a heartbeat to the in-memory roster. Only username/badge changes and new users
+     * mark the snapshot dirty; a plain lastSeen bump does not change the payload.
+     */
+    public void recordHeartbeat(String uuid, String username, String badgeIconId, String badgeColorId, Instant heartbeatAt) {
+        ActiveBadge next = new ActiveBadge(uuid, username, badgeIconId, badgeColorId, heartbeatAt);
+        ActiveBadge previous = activeBadges.put(uuid, next);
+        if (!next.sameBadge(previous)) {
+            dirty.set(true);
+        }
+    }
+
+    public BadgeSnapshot getSnapshot() {
+        BadgeSnapshot current = snapshot;
+        if (current == null) {
+            rebuildIfDirty();
+            current = snapshot;
+        }
+        return current;
+    }
+
+    /**
+     * Exact membership lookup for UUIDs that hit the Bloom filter on the client.
+     * UUIDs may be passed with or without dashes; unknown or inactive ones are left out.
+     */
+    public List<BadgeInfo> lookup(Collection<String> uuids) {
+        List<BadgeInfo> found = new ArrayList<>();
+        for (String uuid : uuids) {
+            if (uuid == null) {
+                continue;
+            }
+            ActiveBadge badge = activeBadges.get(uuid.replace("-", "").toLowerCase());
+            if (badge != null) {
+                found.add(toBadgeInfo(badge));
+            }
+        }
+        return found;
+    }
+
+    public synchronized BadgeChanges getChangesSince(String sinceToken) {
+        BadgeSnapshot current = getSnapshot();
+        long since = parseVersionToken(sinceToken);
+
+        if (since < 0 || since > current.version()) {
+            return new BadgeChanges(current.versionToken(), true, List.of(), List.of());
+        }
+        if (since == current.version()) {
+            return new BadgeChanges(current.versionToken(), false, List.of(), List.of());
+        }
+
+        BadgeChangeSet oldest = changeLog.peekFirst();
+        if (oldest == null || oldest.version() > since + 1) {
+            return new BadgeChanges(current.versionToken(), true, List.of(), List.of());
+        }
+
+        // Replay in order; a later upsert or removal of the same uuid overrides an earlier one
+        Map<String, BadgeInfo> upserts = new LinkedHashMap<>();
+        Set<String> removed = new LinkedHashSet<>();
+        for (BadgeChangeSet changeSet : changeLog) {
+            if (changeSet.version() <= since) {
+                continue;
+            }
+            for (BadgeInfo badge : changeSet.upserts()) {
+                removed.remove(badge.uuid());
+                upserts.put(badge.uuid(), badge);
+            }
+            for (String uuid : changeSet.removed()) {
+                upserts.remove(uuid);
+                removed.add(uuid);
+            }
+        }
+
+        return new BadgeChanges(current.versionToken(), false, List.copyOf(upserts.values()), List.copyOf(removed));
+    }
+
+    @Scheduled(fixedDelay = REBUILD_INTERVAL_MS, initialDelay = REBUILD_INTERVAL_MS)
+    public void rebuildIfDirty() {
+        expireInactive(Instant.now());
+        if (dirty.getAndSet(false) || snapshot == null) {
+            rebuildSnapshot();
+        }
+    }
+
+    /**
+     * Merge the database view into the roster. Catches users written by other paths and
+     * corrects drift; entries newer than the database (not yet flushed) are kept.
+     */
+    @Scheduled(fixedDelay = DATABASE_RESYNC_INTERVAL_MS, initialDelay = DATABASE_RESYNC_INTERVAL_MS)
+    public void resyncFromDatabase() {
+        try {
+            Instant cutoff = Instant.now().minus(ACTIVE_THRESHOLD);
+            for (WynnExtrasUser user : userRepository.findActiveUsersSince(cutoff)) {
+                ActiveBadge fromDb = new ActiveBadge(
+                        user.getUuid(),
+                        user.getUsername(),
+                        BadgeCatalog.normalizeBadgeIconId(user.getBadgeIconId()),
+                        BadgeCatalog.normalizeBadgeColorId(user.getBadgeColorId()),
+                        user.getLastSeen());
+                ActiveBadge merged = activeBadges.merge(user.getUuid(), fromDb,
+                        (current, db) -> db.lastSeen().isAfter(current.lastSeen()) ? db : current);
+                if (merged == fromDb) {
+                    dirty.set(true);
+                }
+            }
+            rebuildIfDirty();
+            loaded = true;
+            logger.info("Active badge roster synced from database: {} users (version {})",
+                    activeBadges.size(), version.get());
+        } catch (Exception e) {
+            logger.error("Failed to sync active badge roster from database", e);
+        }
+    }
+
+    private void expireInactive(Instant now) {
+        Instant cutoff = now.minus(ACTIVE_THRESHOLD);
+        if (activeBadges.values().removeIf(badge -> !badge.lastSeen().isAfter(cutoff))) {
+            dirty.set(true);
+        }
+    }
+
+    private long parseVersionToken(String token) {
+        if (token == null) {
+            return -1;
+        }
+        String prefix = bootId + "-";
+        if (!token.startsWith(prefix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(token.substring(prefix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private synchronized void rebuildSnapshot() {
+        BadgeSnapshot previous = snapshot;
+        List<ActiveBadge> badges = new ArrayList<>(activeBadges.values());
+        badges.sort(Comparator.comparing(ActiveBadge::uuid));
+
+        List<BadgeInfo> upserts = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        if (previous != null) {
+            Map<String, ActiveBadge> previousByUuid = new HashMap<>();
+            for (ActiveBadge badge : previous.badges()) {
+                previousByUuid.put(badge.uuid(), badge);
+            }
+            for (ActiveBadge badge : badges) {
+                if (!badge.sameBadge(previousByUuid.remove(badge.uuid()))) {
+                    upserts.add(toBadgeInfo(badge));
+                }
+            }
+            removed.addAll(previousByUuid.keySet());
+
+            if (upserts.isEmpty() && removed.isEmpty()) {
+                return;
+            }
+        }
+
+        List<String> uuids = new ArrayList<>(badges.size());
+        List<BadgeInfo> badgeInfos = new ArrayList<>(badges.size());
+        for (ActiveBadge badge : badges) {
+            uuids.add(badge.uuid());
+            badgeInfos.add(toBadgeInfo(badge));
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("uuids", uuids);
+        payload.put("count", uuids.size());
+        payload.put("badges", badgeInfos);
+
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(payload);
+            byte[] binary = BadgeBinaryCodec.encode(badgeInfos.stream()
+                    .map(badge -> new BadgeBinaryCodec.Badge(badge.uuid(), badge.username(), badge.iconId(), badge.colorId()))
+                    .toList());
+            long nextVersion = version.incrementAndGet();
+            snapshot = new BadgeSnapshot(
+                    nextVersion,
+                    bootId + "-" + nextVersion,
+                    Instant.now(),
+                    List.copyOf(badges),
+                    json,
+                    BadgeBinaryCodec.gzip(json),
+                    binary,
+                    BadgeBinaryCodec.gzip(binary),
+                    UuidBloomFilter.build(uuids, BLOOM_FALSE_POSITIVE_RATE).toBytes());
+            if (previous != null) {
+                changeLog.addLast(new BadgeChangeSet(nextVersion, List.copyOf(upserts), List.copyOf(removed)));
+                while (changeLog.size() > MAX_CHANGE_LOG_ENTRIES) {
+                    changeLog.removeFirst();
+                }
+            }
+        } catch (Exception e) {
+            dirty.set(true);
+            logger.error("Failed to serialize active badge snapshot", e);
+        }
+    }
+
+    private static BadgeInfo toBadgeInfo(ActiveBadge badge) {
+        return new BadgeInfo(badge.uuid(), badge.username(), badge.iconId(), badge.colorId());
+    }
+}
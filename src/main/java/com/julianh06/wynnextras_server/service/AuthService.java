@@ -2,8 +2,13 @@ package com.julianh06.wynnextras_server.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.julianh06.wynnextras_server.util.CircuitBreaker;
+import com.julianh06.wynnextras_server.util.ExpiringCache;
+import com.julianh06.wynnextras_server.util.LatencyHistogram;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.net.URI;
@@ -12,11 +17,14 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
 import java.time.Duration;
-import java.util.Base64;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for authenticating players via Mojang's sessionserver
@@ -25,7 +33,6 @@ import java.util.concurrent.ConcurrentHashMap;
 @Service
 public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
-    private static final String MOJANG_SESSION_SERVER = "https://sessionserver.mojang.com/session/minecraft/hasJoined";
     private static final HttpClient httpClient = HttpClient.newBuilder()
             .version(HttpClient.Version.HTTP_1_1)
             .connectTimeout(Duration.ofSeconds(10))
@@ -35,12 +42,41 @@ public class AuthService {
     // Cache successful verifications - allows same serverId to be reused within window
     // This is necessary because the client caches auth and sends multiple requests with the same serverId
     // Longer cache = fewer Mojang API calls, and it's safe because username must match
-    private final Map<String, CachedAuth> authCache = new ConcurrentHashMap<>();
+    // Bounded by max size; expired entries are dropped in expiry order by evictExpired()
+    private final ExpiringCache<String, CachedAuth> authCache;
     private static final long CACHE_EXPIRY_MS = 600000; // 10 minutes
+    private static final long EVICTION_INTERVAL_MS = 60000;
 
-    private static final Map<String, SessionData> sessions = new ConcurrentHashMap<>();
     public static final long SESSION_DURATION_MS = 2 * 60 * 60 * 1000; // 2 hours
 
+    private final SessionStore sessionStore;
+
+    // Mojang sessionserver protection: coalescing, concurrency limit, circuit breaker
+    private final String sessionServerUrl;
+    private final Map<String, CompletableFuture<AuthResult>> inFlight = new ConcurrentHashMap<>();
+    private final Semaphore mojangPermits;
+    private final long permitTimeoutMs;
+    private final CircuitBreaker circuitBreaker;
+    private final LatencyHistogram mojangLatency = new LatencyHistogram();
+    private final AtomicLong coalescedVerifications = new AtomicLong();
+    private final AtomicLong limiterRejections = new AtomicLong();
+
+    public AuthService(
+            SessionStore sessionStore,
+            @Value("${wynnextras.auth.mojang-cache.max-size:10000}") int maxCachedAuths,
+            @Value("${wynnextras.auth.mojang.session-server-url:https://sessionserver.mojang.com/session/minecraft/hasJoined}") String sessionServerUrl,
+            @Value("${wynnextras.auth.mojang.max-concurrent:16}") int maxConcurrent,
+            @Value("${wynnextras.auth.mojang.permit-timeout-ms:2000}") long permitTimeoutMs,
+            @Value("${wynnextras.auth.mojang.breaker.failure-threshold:5}") int breakerFailureThreshold,
+            @Value("${wynnextras.auth.mojang.breaker.open-ms:30000}") long breakerOpenMs) {
+        this.sessionStore = sessionStore;
+        this.authCache = new ExpiringCache<>(maxCachedAuths);
+        this.sessionServerUrl = sessionServerUrl;
+        this.mojangPermits = new Semaphore(maxConcurrent);
+        this.permitTimeoutMs = permitTimeoutMs;
+        this.circuitBreaker = new CircuitBreaker(breakerFailureThreshold, breakerOpenMs);
+    }
+
     public static class SessionData {
         public final String uuid;
         public final String username;
@@ -63,16 +99,10 @@ public class AuthService {
     private static class CachedAuth {
         final String uuid;
         final String username;
-        final long timestamp;
 
         CachedAuth(String uuid, String username) {
             this.uuid = uuid;
             this.username = username;
-            this.timestamp = System.currentTimeMillis();
-        }
-
-        boolean isExpired() {
-            return System.currentTimeMillis() - timestamp > CACHE_EXPIRY_MS;
         }
     }
 
@@ -86,7 +116,7 @@ public class AuthService {
     public AuthResult verifyPlayer(String username, String serverId) {
         // Check if we have a cached verification for this serverId
         CachedAuth cached = authCache.get(serverId);
-        if (cached != null && !cached.isExpired()) {
+        if (cached != null) {
             // Verify the username matches (security check)
             if (cached.username.equalsIgnoreCase(username)) {
                 logger.debug("Using cached auth for {} (serverId: {})", username, serverId.substring(0, 8) + "...");
@@ -98,59 +128,131 @@ public class AuthService {
             }
         }
 
-        // Clean up expired entries if cache is getting large
-        cleanupExpiredCache();
+        // Concurrent logins with the same (username, serverId) share one sessionserver call
+        String flightKey = username.toLowerCase() + ":" + serverId;
+        CompletableFuture<AuthResult> flight = new CompletableFuture<>();
+        CompletableFuture<AuthResult> existing = inFlight.putIfAbsent(flightKey, flight);
+        if (existing != null) {
+            coalescedVerifications.incrementAndGet();
+            return existing.join();
+        }
 
+        AuthResult result = null;
         try {
-            // Call Mojang's sessionserver to verify the player
-            String url = MOJANG_SESSION_SERVER +
-                "?username=" + URLEncoder.encode(username, StandardCharsets.UTF_8) +
-                "&serverId=" + URLEncoder.encode(serverId, StandardCharsets.UTF_8);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .GET()
-                    .timeout(Duration.ofSeconds(10))
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                // Parse response
-                JsonNode json = objectMapper.readTree(response.body());
-                String verifiedUuid = json.get("id").asText();
-                String verifiedUsername = json.get("name").asText();
-
-                // Normalize UUID (remove dashes if present, lowercase)
-                verifiedUuid = verifiedUuid.replace("-", "").toLowerCase();
-
-                // Cache the successful verification
-                authCache.put(serverId, new CachedAuth(verifiedUuid, verifiedUsername));
-
-                logger.info("Verified {} with Mojang", username);
-
-                return AuthResult.success(verifiedUuid, verifiedUsername);
-            } else if (response.statusCode() == 204) {
-                // No Content - authentication failed
-                logger.warn("Authentication failed for username {}: Invalid session", username);
-                return AuthResult.error("Authentication failed - invalid session");
-            } else {
-                logger.error("Mojang sessionserver returned unexpected status: {}", response.statusCode());
-                return AuthResult.error("Authentication service error");
+            result = callSessionServer(username, serverId);
+            return result;
+        } finally {
+            inFlight.remove(flightKey, flight);
+            flight.complete(result != null ? result : AuthResult.error("Authentication service unavailable"));
+        }
+    }
+
+    /**
+     * One hasJoined call, bounded by the concurrency limit and guarded by the circuit breaker.
+     * Only transport errors and unexpected statuses count as failures; 204 is a normal "not joined".
+     */
+    private AuthResult callSessionServer(String username, String serverId) {
+        try {
+            if (!mojangPermits.tryAcquire(permitTimeoutMs, TimeUnit.MILLISECONDS)) {
+                limiterRejections.incrementAndGet();
+                logger.warn("Too many concurrent Mojang verifications, rejecting {}", username);
+                return AuthResult.error("Authentication service busy");
             }
-        } catch (Exception e) {
-            logger.error("Error verifying {} with Mojang", username, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return AuthResult.error("Authentication service unavailable");
         }
+
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                return AuthResult.error("Authentication service unavailable");
+            }
+
+            long start = System.nanoTime();
+            boolean responded = false;
+            try {
+                // Call Mojang's sessionserver to verify the player
+                String url = sessionServerUrl +
+                    "?username=" + URLEncoder.encode(username, StandardCharsets.UTF_8) +
+                    "&serverId=" + URLEncoder.encode(serverId, StandardCharsets.UTF_8);
+
+                HttpRequest request = HttpRequest.newBuilder()
+                        .uri(URI.create(url))
+                        .GET()
+                        .timeout(Duration.ofSeconds(10))
+                        .build();
+
+                HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                mojangLatency.record((System.nanoTime() - start) / 1_000_000);
+                responded = true;
+
+                if (response.statusCode() == 200) {
+                    // Parse response, a malformed body counts as a failure
+                    JsonNode json = objectMapper.readTree(response.body());
+                    String verifiedUuid = json.get("id").asText();
+                    String verifiedUsername = json.get("name").asText();
+
+                    // Normalize UUID (remove dashes if present, lowercase)
+                    verifiedUuid = verifiedUuid.replace("-", "").toLowerCase();
+                    circuitBreaker.recordSuccess();
+
+                    // Cache the successful verification
+                    authCache.put(serverId, new CachedAuth(verifiedUuid, verifiedUsername),
+                            System.currentTimeMillis() + CACHE_EXPIRY_MS);
+
+                    logger.info("Verified {} with Mojang", username);
+
+                    return AuthResult.success(verifiedUuid, verifiedUsername);
+                } else if (response.statusCode() == 204) {
+                    circuitBreaker.recordSuccess();
+                    // No Content - authentication failed
+                    logger.warn("Authentication failed for username {}: Invalid session", username);
+                    return AuthResult.error("Authentication failed - invalid session");
+                } else {
+                    circuitBreaker.recordFailure();
+                    logger.error("Mojang sessionserver returned unexpected status: {}", response.statusCode());
+                    return AuthResult.error("Authentication service error");
+                }
+            } catch (Exception e) {
+                circuitBreaker.recordFailure();
+                if (!responded) {
+                    mojangLatency.record((System.nanoTime() - start) / 1_000_000);
+                }
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                logger.error("Error verifying {} with Mojang", username, e);
+                return AuthResult.error("Authentication service unavailable");
+            }
+        } finally {
+            mojangPermits.release();
+        }
     }
 
     /**
-     * Clean up expired cache entries to prevent memory leak
+     * Drop expired Mojang verifications and sessions. Only the expired entries are touched,
+     * so this stays cheap no matter how many live entries there are.
      */
-    private void cleanupExpiredCache() {
-        if (authCache.size() > 500) {
-            authCache.entrySet().removeIf(entry -> entry.getValue().isExpired());
-        }
+    @Scheduled(fixedDelay = EVICTION_INTERVAL_MS, initialDelay = EVICTION_INTERVAL_MS)
+    public void evictExpired() {
+        authCache.evictExpired();
+        sessionStore.evictExpired();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> mojang = new HashMap<>();
+        mojang.put("inFlight", inFlight.size());
+        mojang.put("coalesced", coalescedVerifications.get());
+        mojang.put("availablePermits", mojangPermits.availablePermits());
+        mojang.put("limiterRejections", limiterRejections.get());
+        mojang.put("circuitBreaker", circuitBreaker.getStats());
+        mojang.put("latency", mojangLatency.getStats());
+
+        return Map.of(
+                "mojangCache", authCache.getStats(),
+                "mojang", mojang,
+                "sessions", sessionStore.getStats()
+        );
     }
 
     /**
@@ -190,25 +292,20 @@ public class AuthService {
             return null;
         }
 
-        String token = generateSessionToken();
-        sessions.put(token, new SessionData(result.getUuid(), result.getUsername(), System.currentTimeMillis() + SESSION_DURATION_MS));
-
-        return token;
+        return sessionStore.issue(new SessionData(result.getUuid(), result.getUsername(), System.currentTimeMillis() + SESSION_DURATION_MS));
     }
 
-    private String generateSessionToken() {
-        byte[] bytes = new byte[32];
-        new SecureRandom().nextBytes(bytes);
-        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    public boolean revokePlayerSessions(String uuid) {
+        return sessionStore.revokePlayer(uuid.replace("-", "").toLowerCase());
     }
 
-    public static SessionData validateSession(String token) {
+    public SessionData validateSession(String token) {
         if (token == null) {
             System.out.println("token null");
             return null;
         }
 
-        SessionData session = sessions.get(token);
+        SessionData session = sessionStore.find(token);
 
         if (session == null) {
             return null;
@@ -216,7 +313,7 @@ public class AuthService {
 
         if (session.isExpired()) {
             System.out.println("session expired " + session.expiresAt + " aaaaaa");
-            sessions.remove(token);
+            sessionStore.remove(token);
             return null;
         }
 
@@ -0,0 +1,347 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.WynncraftPlayerId;
+import com.julianh06.wynnextras_server.entity.WynncraftSightingSample;
+import com.julianh06.wynnextras_server.repository.DailyUserActivityRepository;
+import com.julianh06.wynnextras_server.repository.WynncraftPlayerIdRepository;
+import com.julianh06.wynnextras_server.repository.WynncraftPlayerSightingRepository;
+import com.julianh06.wynnextras_server.repository.WynncraftSightingSampleRepository;
+import com.julianh06.wynnextras_server.util.IdBitmap;
+import com.julianh06.wynnextras_server.util.PlayerUuids;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Stores each sample as one compressed bitmap of player ids instead of a row per player.
+ *
+ * Player UUIDs are interned to dense int ids (wynncraft_player_id, mirrored in memory), so a
+ * sample of tens of thousands of players is a single wynncraft_sighting_sample row of a few
+ * hundred KB at most. Distinct counts over a range are the cardinality of the OR of the
+ * sample bitmaps, and WynnExtras user counts an AND with a bitmap built from
+ * daily_user_activity.
+ *
+ * Ids are assigned by this node from the in-memory table, so only one node may write samples.
+ */
+@Service
+@ConditionalOnProperty(name = "wynnextras.usage.sighting-store", havingValue = "bitmap")
+public class BitmapSightingStore implements SightingStore {
+    private static final Logger logger = LoggerFactory.getLogger(BitmapSightingStore.class);
+    private static final Duration HEARTBEAT_LOOKBACK = Duration.ofHours(24);
+
+    private final WynncraftSightingSampleRepository sampleRepository;
+    private final WynncraftPlayerIdRepository playerIdRepository;
+    private final DailyUserActivityRepository dailyUserActivityRepository;
+    private final WynncraftPlayerSightingRepository playerSightingRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    private final PlayerIdTable playerIds = new PlayerIdTable();
+    private boolean playerIdsLoaded;
+    private int nextPlayerId;
+
+    public BitmapSightingStore(
+            WynncraftSightingSampleRepository sampleRepository,
+            WynncraftPlayerIdRepository playerIdRepository,
+            DailyUserActivityRepository dailyUserActivityRepository,
+            WynncraftPlayerSightingRepository playerSightingRepository,
+            PlatformTransactionManager transactionManager) {
+        this.sampleRepository = sampleRepository;
+        this.playerIdRepository = playerIdRepository;
+        this.dailyUserActivityRepository = dailyUserActivityRepository;
+        this.playerSightingRepository = playerSightingRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Own transaction, so samples can be written while an import stream is still open
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public synchronized void store(Instant sampledAt, PlayerUuids players) {
+        ensurePlayerIdsLoaded();
+
+        int[] ids = new int[players.size()];
+        List<WynncraftPlayerId> newIds = new ArrayList<>();
+        List<Integer> newIdIndexes = new ArrayList<>();
+        int nextId = nextPlayerId;
+        for (int i = 0; i < players.size(); i++) {
+            int id = playerIds.get(players.msb(i), players.lsb(i));
+            if (id < 0) {
+                id = nextId++;
+                newIds.add(new WynncraftPlayerId(id, players.toHex(i)));
+                newIdIndexes.add(i);
+            }
+            ids[i] = id;
+        }
+        int[] sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        IdBitmap bitmap = IdBitmap.ofSorted(sortedIds, sortedIds.length);
+
+        writeTransaction.executeWithoutResult(status -> {
+            playerIdRepository.saveAll(newIds);
+            WynncraftSightingSample sample = sampleRepository.findBySampledAt(sampledAt)
+                    .orElseGet(() -> new WynncraftSightingSample(sampledAt));
+            sample.setPlayerCount(ids.length);
+            sample.setPlayerBitmap(bitmap.toBytes());
+            sampleRepository.save(sample);
+        });
+
+        // Only once committed, so a failed write does not leave ids that were never stored
+        for (int index : newIdIndexes) {
+            playerIds.put(players.msb(index), players.lsb(index), ids[index]);
+        }
+        nextPlayerId = nextId;
+    }
+
+    @Override
+    public long countSamplesBetween(Instant start, Instant end) {
+        return sampleRepository.countBySampledAtGreaterThanEqualAndSampledAtLessThan(start, end);
+    }
+
+    @Override
+    public Instant findFirstSampleTime() {
+        return sampleRepository.findFirstSampledAt();
+    }
+
+    @Override
+    public long countUniquePlayersBetween(Instant start, Instant end) {
+        return unionBetween(start, end).cardinality();
+    }
+
+    @Override
+    public long countDailyActiveWynnExtrasUsersSeenBetween(Instant start, Instant end, LocalDate activityDate) {
+        IdBitmap seen = unionBetween(start, end);
+        if (seen.cardinality() == 0) {
+            return 0;
+        }
+        return seen.andCardinality(bitmapOf(dailyUserActivityRepository.findUserUuidsByActivityDate(activityDate)));
+    }
+
+    @Override
+    public List<SampleCounts> findSampleCountsBetween(Instant start, Instant end) {
+        List<WynncraftSightingSample> samples = sampleRepository
+                .findBySampledAtGreaterThanEqualAndSampledAtLessThanOrderBySampledAtAsc(start, end);
+        if (samples.isEmpty()) {
+            return List.of();
+        }
+
+        // Heartbeat windows that can count for any of the samples, with their player ids resolved once
+        List<DailyUserActivityRepository.HeartbeatWindow> windows =
+                dailyUserActivityRepository.findHeartbeatWindowsBetween(start.minus(HEARTBEAT_LOOKBACK), end);
+        int[] windowIds = new int[windows.size()];
+        synchronized (this) {
+            ensurePlayerIdsLoaded();
+            for (int i = 0; i < windows.size(); i++) {
+                windowIds[i] = idOf(windows.get(i).getUserUuid());
+            }
+        }
+
+        List<SampleCounts> counts = new ArrayList<>(samples.size());
+        int[] active = new int[windows.size()];
+        for (WynncraftSightingSample sample : samples) {
+            Instant sampledAt = sample.getSampledAt();
+            Instant heartbeatCutoff = sampledAt.minus(HEARTBEAT_LOOKBACK);
+            int activeCount = 0;
+            for (int i = 0; i < windows.size(); i++) {
+                DailyUserActivityRepository.HeartbeatWindow window = windows.get(i);
+                if (windowIds[i] >= 0
+                        && !window.getFirstHeartbeatAt().isAfter(sampledAt)
+                        && !window.getLastHeartbeatAt().isBefore(heartbeatCutoff)) {
+                    active[activeCount++] = windowIds[i];
+                }
+            }
+            IdBitmap seen = IdBitmap.fromBytes(sample.getPlayerBitmap());
+            counts.add(new SampleCounts(sampledAt, seen.cardinality(), seen.andCardinality(sortedBitmap(active, activeCount))));
+        }
+        return counts;
+    }
+
+    /**
+     * Interned player ids are kept, so a returning player gets the same id.
+     */
+    @Override
+    public long deleteSamplesBetween(Instant start, Instant end) {
+        return sampleRepository.deleteBySampledAtBetween(start, end);
+    }
+
+    /**
+     * Convert the wynncraft_player_sighting rows, one sample at a time, in sample order.
+     */
+    @Override
+    public long importFromRows() {
+        Long imported = readOnlyTransaction.execute(status -> {
+            long samples = 0;
+            try (Stream<WynncraftPlayerSightingRepository.SightingRow> rows = playerSightingRepository.streamAllOrderBySampledAt()) {
+                Iterator<WynncraftPlayerSightingRepository.SightingRow> it = rows.iterator();
+                Instant current = null;
+                PlayerUuids.Builder players = new PlayerUuids.Builder();
+                while (it.hasNext()) {
+                    WynncraftPlayerSightingRepository.SightingRow row = it.next();
+                    if (current != null && !current.equals(row.getSampledAt())) {
+                        store(current, players.build());
+                        samples++;
+                        players = new PlayerUuids.Builder();
+                    }
+                    current = row.getSampledAt();
+                    players.add(row.getPlayerUuid());
+                }
+                if (current != null) {
+                    store(current, players.build());
+                    samples++;
+                }
+            }
+            return samples;
+        });
+        logger.info("Imported {} sighting samples into the bitmap store", imported);
+        return imported == null ? 0 : imported;
+    }
+
+    @Override
+    public synchronized Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("store", "bitmap");
+        stats.put("playerIdsLoaded", playerIdsLoaded);
+        stats.put("internedPlayers", playerIds.size());
+        stats.put("nextPlayerId", nextPlayerId);
+        return stats;
+    }
+
+    private IdBitmap unionBetween(Instant start, Instant end) {
+        IdBitmap union = IdBitmap.EMPTY;
+        for (WynncraftSightingSample sample
+                : sampleRepository.findBySampledAtGreaterThanEqualAndSampledAtLessThanOrderBySampledAtAsc(start, end)) {
+            union = union.or(IdBitmap.fromBytes(sample.getPlayerBitmap()));
+        }
+        return union;
+    }
+
+    /**
+     * Bitmap of the ids of the given UUIDs; UUIDs never sighted have no id and are left out.
+     */
+    private IdBitmap bitmapOf(List<String> uuids) {
+        int[] ids = new int[uuids.size()];
+        int count = 0;
+        synchronized (this) {
+            ensurePlayerIdsLoaded();
+            for (String uuid : uuids) {
+                int id = idOf(uuid);
+                if (id >= 0) ids[count++] = id;
+            }
+        }
+        return sortedBitmap(ids, count);
+    }
+
+    private static IdBitmap sortedBitmap(int[] ids, int count) {
+        Arrays.sort(ids, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || ids[i] != ids[unique - 1]) ids[unique++] = ids[i];
+        }
+        return IdBitmap.ofSorted(ids, unique);
+    }
+
+    private int idOf(String uuid) {
+        long[] halves = new long[2];
+        return PlayerUuids.parse(uuid, halves) ? playerIds.get(halves[0], halves[1]) : -1;
+    }
+
+    private void ensurePlayerIdsLoaded() {
+        if (playerIdsLoaded) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            long[] halves = new long[2];
+            try (Stream<WynncraftPlayerIdRepository.PlayerIdRow> rows = playerIdRepository.streamAll()) {
+                rows.forEach(row -> {
+                    if (PlayerUuids.parse(row.getPlayerUuid(), halves)) {
+                        playerIds.put(halves[0], halves[1], row.getId());
+                    }
+                    nextPlayerId = Math.max(nextPlayerId, row.getId() + 1);
+                });
+            }
+        });
+        playerIdsLoaded = true;
+        logger.info("Loaded {} interned player ids in {} ms", playerIds.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Open addressing hash table from UUID halves to player id, without per-entry objects.
+     */
+    static final class PlayerIdTable {
+        private long[] keys = new long[2 * 1024];
+        // id + 1, so 0 marks a free slot
+        private int[] values = new int[1024];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        int get(long msb, long lsb) {
+            int mask = values.length - 1;
+            for (int slot = hash(msb, lsb) & mask; values[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[2 * slot] == msb && keys[2 * slot + 1] == lsb) {
+                    return values[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long msb, long lsb, int id) {
+            if ((size + 1) * 4L > values.length * 3L) {
+                grow();
+            }
+            int mask = values.length - 1;
+            int slot = hash(msb, lsb) & mask;
+            while (values[slot] != 0) {
+                if (keys[2 * slot] == msb && keys[2 * slot + 1] == lsb) {
+                    values[slot] = id + 1;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[2 * slot] = msb;
+            keys[2 * slot + 1] = lsb;
+            values[slot] = id + 1;
+            size++;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldValues.length; slot++) {
+                if (oldValues[slot] != 0) {
+                    put(oldKeys[2 * slot], oldKeys[2 * slot + 1], oldValues[slot] - 1);
+                }
+            }
+        }
+
+        private static int hash(long msb, long lsb) {
+            long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            return (int) h;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.julianh06.wynnextras_server.service;
+
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chart data of the /db dashboard as plain maps and lists, keyed by chart, ready to be
+ * serialized to JSON. Colors, labels and chart options are left to the page script.
+ */
+final class DashboardCharts {
+    private static final DateTimeFormatter SAMPLE_TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneOffset.UTC);
+
+    /**
+     * Where a chart's data comes from, which decides how long clients may cache it.
+     */
+    enum Source {
+        /** users and heartbeats, can change with every model rebuild */
+        MODEL,
+        /** Wynncraft usage samples, captured at minute 5 of every hour (UTC) */
+        USAGE_SAMPLES,
+        /** daily snapshots, captured at 01:00 UTC */
+        DAILY_SNAPSHOTS
+    }
+
+    static final Map<String, Source> SOURCES = Map.ofEntries(
+            Map.entry("summary", Source.MODEL),
+            Map.entry("created", Source.MODEL),
+            Map.entry("newPerWeek", Source.MODEL),
+            Map.entry("lastSeen", Source.MODEL),
+            Map.entry("versions", Source.MODEL),
+            Map.entry("hours", Source.MODEL),
+            Map.entry("activeSnapshots", Source.DAILY_SNAPSHOTS),
+            Map.entry("usage", Source.USAGE_SAMPLES),
+            Map.entry("heartbeats", Source.MODEL),
+            Map.entry("versionTimeline", Source.DAILY_SNAPSHOTS),
+            Map.entry("guildTimeline", Source.DAILY_SNAPSHOTS));
+
+    private DashboardCharts() {}
+
+    static Map<String, Object> build(DashboardService.DashboardModel model) {
+        Map<String, Object> charts = new LinkedHashMap<>();
+        charts.put("summary", summary(model.summary()));
+        charts.put("created", created(model.createdPerDay()));
+        charts.put("newPerWeek", newPerWeek(model.newPerWeek()));
+        charts.put("lastSeen", lastSeen(model.lastSeenPerDay()));
+        charts.put("versions", Map.of(
+                "all", versionCounts(model.versionsAllTime()),
+                "active7d", versionCounts(model.versionsActive7d()),
+                "active14d", versionCounts(model.versionsActive14d())));
+        charts.put("hours", Map.of("data", model.lastSeenByHour()));
+        charts.put("activeSnapshots", activeSnapshots(model.activeSnapshots()));
+        charts.put("usage", usage(model.usageDays()));
+        charts.put("heartbeats", heartbeats(model.heartbeatDays()));
+        charts.put("versionTimeline", versionTimeline(model.versionTimeline()));
+        charts.put("guildTimeline", guildTimeline(model.guildTimeline()));
+        return charts;
+    }
+
+    private static Map<String, Object> summary(DashboardService.Summary summary) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("totalUsers", summary.totalUsers());
+        result.put("active7d", summary.active7d());
+        result.put("active14d", summary.active14d());
+        result.put("inactive7d", summary.inactive7d());
+        result.put("inactive14d", summary.inactive14d());
+        result.put("inactive30d", summary.inactive30d());
+        result.put("newToday", summary.newToday());
+        result.put("returnedToday", summary.returnedToday());
+        result.put("latestUsagePercent", round(summary.latestUsagePercent(), 2));
+        return result;
+    }
+
+    private static Map<String, Object> created(List<DashboardService.CreatedDay> days) {
+        List<String> labels = new ArrayList<>(days.size());
+        List<Long> total = new ArrayList<>(days.size());
+        List<Long> newUsers = new ArrayList<>(days.size());
+        for (DashboardService.CreatedDay day : days) {
+            labels.add(day.day());
+            total.add(day.cumulative());
+            newUsers.add(day.newUsers());
+        }
+        return Map.of("labels", labels, "total", total, "newUsers", newUsers);
+    }
+
+    private static Map<String, Object> newPerWeek(List<DashboardService.DayCount> weeks) {
+        return Map.of(
+                "labels", weeks.stream().map(DashboardService.DayCount::day).toList(),
+                "data", weeks.stream().map(DashboardService.DayCount::count).toList());
+    }
+
+    private static Map<String, Object> lastSeen(List<DashboardService.LastSeenDay> days) {
+        List<String> labels = new ArrayList<>(days.size());
+        List<Long> counts = new ArrayList<>(days.size());
+        List<Double> average = new ArrayList<>(days.size());
+        for (DashboardService.LastSeenDay day : days) {
+            labels.add(day.day());
+            counts.add(day.count());
+            average.add(round(day.rollingAverage(), 1));
+        }
+        return Map.of("labels", labels, "counts", counts, "average", average);
+    }
+
+    private static Map<String, Object> versionCounts(List<DashboardService.VersionCount> counts) {
+        return Map.of(
+                "labels", counts.stream().map(DashboardService.VersionCount::version).toList(),
+                "data", counts.stream().map(DashboardService.VersionCount::count).toList());
+    }
+
+    private static Map<String, Object> activeSnapshots(List<DashboardService.ActiveWindowDay> days) {
+        List<String> labels = new ArrayList<>(days.size());
+        List<Long> d1 = new ArrayList<>(days.size()), d3 = new ArrayList<>(days.size()), d5 = new ArrayList<>(days.size());
+        List<Long> d7 = new ArrayList<>(days.size()), d10 = new ArrayList<>(days.size()), d14 = new ArrayList<>(days.size());
+        for (DashboardService.ActiveWindowDay s : days) {
+            labels.add(s.day());
+            d1.add(s.active1d());
+            d3.add(s.active3d());
+            d5.add(s.active5d());
+            d7.add(s.active7d());
+            d10.add(s.active10d());
+            d14.add(s.active14d());
+        }
+        return Map.of("labels", labels, "d1", d1, "d3", d3, "d5", d5, "d7", d7, "d10", d10, "d14", d14);
+    }
+
+    private static Map<String, Object> usage(List<DashboardService.UsageDay> days) {
+        List<String> labels = new ArrayList<>(days.size());
+        List<Double> pct = new ArrayList<>(days.size()), lowest = new ArrayList<>(days.size()), highest = new ArrayList<>(days.size());
+        List<Long> users = new ArrayList<>(days.size()), visible = new ArrayList<>(days.size());
+        List<Long> online = new ArrayList<>(days.size()), samples = new ArrayList<>(days.size());
+        Map<String, List<Map<String, Object>>> breakdowns = new LinkedHashMap<>();
+        for (DashboardService.UsageDay day : days) {
+            labels.add(day.day());
+            pct.add(round(day.usagePercent(), 2));
+            lowest.add(round(day.lowestUsagePercent(), 2));
+            highest.add(round(day.highestUsagePercent(), 2));
+            users.add(day.wynnExtrasUsers());
+            visible.add(day.visiblePlayers());
+            online.add(day.totalOnlinePlayers());
+            samples.add(day.sampleCount());
+
+            List<Map<String, Object>> rows = new ArrayList<>(day.samples().size());
+            for (WynncraftUsageStatsService.UsageSampleBreakdown sample : day.samples()) {
+                rows.add(Map.of(
+                        "t", SAMPLE_TIME_FORMAT.format(sample.sampledAt()),
+                        "ts", sample.sampledAt().toString(),
+                        "pct", round(sample.usagePercent(), 2),
+                        "users", sample.wynnExtrasUsers(),
+                        "visible", sample.visiblePlayers()));
+            }
+            breakdowns.put(day.day(), rows);
+        }
+
+        Map<String, Object> usage = new LinkedHashMap<>();
+        usage.put("labels", labels);
+        usage.put("pct", pct);
+        usage.put("users", users);
+        usage.put("visible", visible);
+        usage.put("online", online);
+        usage.put("samples", samples);
+        usage.put("lowest", lowest);
+        usage.put("highest", highest);
+        usage.put("breakdowns", breakdowns);
+        return usage;
+    }
+
+    private static Map<String, Object> heartbeats(List<DashboardService.HeartbeatDay> days) {
+        List<String> labels = new ArrayList<>(days.size());
+        List<Long> unique = new ArrayList<>(days.size()), heartbeats = new ArrayList<>(days.size());
+        List<Long> newUsers = new ArrayList<>(days.size()), returned = new ArrayList<>(days.size()), d1 = new ArrayList<>(days.size());
+        for (DashboardService.HeartbeatDay day : days) {
+            labels.add(day.day());
+            unique.add(day.uniqueUsers());
+            heartbeats.add(day.heartbeats());
+            newUsers.add(day.newUsers());
+            returned.add(day.returnedAfterGap());
+            d1.add(day.d1Retained());
+        }
+        return Map.of("labels", labels, "unique", unique, "heartbeats", heartbeats,
+                "newUsers", newUsers, "returned", returned, "d1", d1);
+    }
+
+    private static Map<String, Object> versionTimeline(DashboardService.VersionTimeline timeline) {
+        List<Map<String, Object>> versions = new ArrayList<>(timeline.versions().size());
+        for (DashboardService.VersionSeries series : timeline.versions()) {
+            versions.add(Map.of(
+                    "version", series.version(),
+                    "all", series.all(),
+                    "active1d", series.active1d(),
+                    "active3d", series.active3d(),
+                    "active7d", series.active7d(),
+                    "active14d", series.active14d()));
+        }
+        return Map.of("labels", timeline.days(), "versions", versions);
+    }
+
+    private static Map<String, Object> guildTimeline(DashboardService.GuildTimeline timeline) {
+        List<Map<String, Object>> guilds = new ArrayList<>(timeline.guilds().size());
+        for (DashboardService.GuildSeries series : timeline.guilds()) {
+            guilds.add(Map.of(
+                    "tag", series.tag(),
+                    "active7d", series.active7d(),
+                    "adoptionAll", roundAll(series.adoptionAll(), 1),
+                    "adoption7d", roundAll(series.adoption7d(), 1),
+                    "adoption14d", roundAll(series.adoption14d(), 1)));
+        }
+        return Map.of("labels", timeline.days(), "guilds", guilds);
+    }
+
+    private static List<Double> roundAll(List<Double> values, int decimals) {
+        List<Double> rounded = new ArrayList<>(values.size());
+        for (Double value : values) rounded.add(round(value, decimals));
+        return rounded;
+    }
+
+    private static Double round(Double value, int decimals) {
+        if (value == null) return null;
+        double scale = Math.pow(10, decimals);
+        return Math.round(value * scale) / scale;
+    }
+}
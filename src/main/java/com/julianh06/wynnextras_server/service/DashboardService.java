@@ -0,0 +1,457 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.julianh06.wynnextras_server.entity.ActiveUserSnapshot;
+import com.julianh06.wynnextras_server.entity.DailyRetentionStats;
+import com.julianh06.wynnextras_server.entity.GuildUserSnapshot;
+import com.julianh06.wynnextras_server.entity.VersionUsageSnapshot;
+import com.julianh06.wynnextras_server.entity.WynncraftUsageSnapshot;
+import com.julianh06.wynnextras_server.repository.ActiveUserSnapshotRepository;
+import com.julianh06.wynnextras_server.repository.DailyRetentionStatsRepository;
+import com.julianh06.wynnextras_server.repository.DailyUserActivityRepository;
+import com.julianh06.wynnextras_server.repository.GuildUserSnapshotRepository;
+import com.julianh06.wynnextras_server.repository.VersionUsageSnapshotRepository;
+import com.julianh06.wynnextras_server.repository.WynnExtrasUserRepository;
+import com.julianh06.wynnextras_server.repository.WynncraftUsageSnapshotRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Precomputed data behind the /db dashboard.
+ *
+ * The whole model is rebuilt in the background every {@link #REFRESH_INTERVAL_MS} (or sooner
+ * after {@link #markStale()}), so a page view only reads the current {@link DashboardModel}.
+ * Retention counts come precomputed from daily_retention_stats (see {@link RetentionService}).
+ * The per-day usage sample breakdowns of all snapshot days (up to 90) are read from
+ * usage_sample_summary in one range query per rebuild and grouped by day in memory.
+ * The user charts come from one streamed pass over a column projection in a read-only
+ * transaction (see {@link UserDistribution}).
+ *
+ * Each rebuild also serializes every chart once ({@link #getChart(String)}). A chart whose JSON
+ * did not change keeps its ETag and Last-Modified, so clients revalidating it get a 304.
+ */
+@Service
+public class DashboardService {
+    private static final Logger logger = LoggerFactory.getLogger(DashboardService.class);
+    private static final long REFRESH_CHECK_INTERVAL_MS = 30_000;
+    private static final long REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+    private static final long MIN_REBUILD_INTERVAL_MS = 30_000;
+    // A snapshot marks the model stale; it is rebuilt within two refresh checks
+    private static final long SNAPSHOT_REBUILD_DELAY_MS = 2 * REFRESH_CHECK_INTERVAL_MS;
+
+    private final WynnExtrasUserRepository wynnExtrasUserRepository;
+    private final ActiveUserSnapshotRepository activeUserSnapshotRepository;
+    private final GuildUserSnapshotRepository guildUserSnapshotRepository;
+    private final DailyUserActivityRepository dailyUserActivityRepository;
+    private final DailyRetentionStatsRepository retentionStatsRepository;
+    private final VersionUsageSnapshotRepository versionUsageSnapshotRepository;
+    private final WynncraftUsageSnapshotRepository wynncraftUsageSnapshotRepository;
+    private final WynncraftUsageStatsService wynncraftUsageStatsService;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile DashboardModel model;
+    private volatile Map<String, ChartJson> charts = Map.of();
+    private final AtomicBoolean stale = new AtomicBoolean(true);
+    private final Object buildLock = new Object();
+
+    public DashboardService(
+            WynnExtrasUserRepository wynnExtrasUserRepository,
+            ActiveUserSnapshotRepository activeUserSnapshotRepository,
+            GuildUserSnapshotRepository guildUserSnapshotRepository,
+            DailyUserActivityRepository dailyUserActivityRepository,
+            DailyRetentionStatsRepository retentionStatsRepository,
+            VersionUsageSnapshotRepository versionUsageSnapshotRepository,
+            WynncraftUsageSnapshotRepository wynncraftUsageSnapshotRepository,
+            WynncraftUsageStatsService wynncraftUsageStatsService,
+            PlatformTransactionManager transactionManager) {
+        this.wynnExtrasUserRepository = wynnExtrasUserRepository;
+        this.activeUserSnapshotRepository = activeUserSnapshotRepository;
+        this.guildUserSnapshotRepository = guildUserSnapshotRepository;
+        this.dailyUserActivityRepository = dailyUserActivityRepository;
+        this.retentionStatsRepository = retentionStatsRepository;
+        this.versionUsageSnapshotRepository = versionUsageSnapshotRepository;
+        this.wynncraftUsageSnapshotRepository = wynncraftUsageSnapshotRepository;
+        this.wynncraftUsageStatsService = wynncraftUsageStatsService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public record DashboardModel(
+            Instant builtAt,
+            Summary summary,
+            List<CreatedDay> createdPerDay,
+            List<DayCount> newPerWeek,
+            List<LastSeenDay> lastSeenPerDay,
+            List<VersionCount> versionsAllTime,
+            List<VersionCount> versionsActive7d,
+            List<VersionCount> versionsActive14d,
+            int[] lastSeenByHour,
+            List<ActiveWindowDay> activeSnapshots,
+            List<UsageDay> usageDays,
+            List<HeartbeatDay> heartbeatDays,
+            VersionTimeline versionTimeline,
+            GuildTimeline guildTimeline) {}
+
+    public record Summary(
+            long totalUsers,
+            long active7d,
+            long active14d,
+            long inactive7d,
+            long inactive14d,
+            long inactive30d,
+            long newToday,
+            long returnedToday,
+            Double latestUsagePercent) {}
+
+    public record DayCount(String day, long count) {}
+
+    public record CreatedDay(String day, long newUsers, long cumulative) {}
+
+    public record LastSeenDay(String day, long count, double rollingAverage) {}
+
+    public record VersionCount(String version, long count) {}
+
+    public record ActiveWindowDay(String day, long active1d, long active3d, long active5d, long active7d, long active10d, long active14d) {}
+
+    /**
+     * Percentages are null when the day has no usable value (snapshot error or no samples).
+     */
+    public record UsageDay(
+            String day,
+            Double usagePercent,
+            Double lowestUsagePercent,
+            Double highestUsagePercent,
+            long wynnExtrasUsers,
+            long visiblePlayers,
+            Long totalOnlinePlayers,
+            long sampleCount,
+            List<WynncraftUsageStatsService.UsageSampleBreakdown> samples) {}
+
+    public record HeartbeatDay(String day, long uniqueUsers, long heartbeats, long newUsers, long returnedAfterGap, long d1Retained) {}
+
+    public record VersionTimeline(List<String> days, List<VersionSeries> versions) {}
+
+    public record VersionSeries(String version, long[] all, long[] active1d, long[] active3d, long[] active7d, long[] active14d) {}
+
+    public record GuildTimeline(List<String> days, List<GuildSeries> guilds) {}
+
+    /**
+     * Entries are null for days where the guild has no usable snapshot.
+     */
+    public record GuildSeries(String tag, List<Integer> active7d, List<Double> adoptionAll, List<Double> adoption7d, List<Double> adoption14d) {}
+
+    /**
+     * One serialized chart. {@code lastModified} is when its content last changed.
+     */
+    public record ChartJson(byte[] json, String etag, Instant lastModified) {}
+
+    public DashboardModel getModel() {
+        DashboardModel current = model;
+        if (current == null) {
+            synchronized (buildLock) {
+                current = model;
+                if (current == null) {
+                    current = rebuild();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the chart, or null if there is no chart with that name
+     */
+    public ChartJson getChart(String name) {
+        getModel();
+        return charts.get(name);
+    }
+
+    /**
+     * How long clients may cache a chart: until its data source next changes. Model charts
+     * follow the rebuild interval, snapshot charts the capture schedule plus time to rebuild.
+     */
+    public Duration getChartMaxAge(String name) {
+        Instant now = Instant.now();
+        ZonedDateTime nowUtc = now.atZone(ZoneOffset.UTC);
+        Instant expiresAt = switch (DashboardCharts.SOURCES.getOrDefault(name, DashboardCharts.Source.MODEL)) {
+            case MODEL -> getModel().builtAt().plusMillis(REFRESH_INTERVAL_MS);
+            case USAGE_SAMPLES -> {
+                ZonedDateTime next = nowUtc.truncatedTo(ChronoUnit.HOURS).plusMinutes(5);
+                // Samples do not mark the model stale, they show up with the next regular rebuild
+                yield (next.isAfter(nowUtc) ? next : next.plusHours(1)).toInstant().plusMillis(REFRESH_INTERVAL_MS);
+            }
+            case DAILY_SNAPSHOTS -> {
+                ZonedDateTime next = nowUtc.truncatedTo(ChronoUnit.DAYS).plusHours(1);
+                yield (next.isAfter(nowUtc) ? next : next.plusDays(1)).toInstant().plusMillis(SNAPSHOT_REBUILD_DELAY_MS);
+            }
+        };
+        return expiresAt.isAfter(now) ? Duration.between(now, expiresAt) : Duration.ZERO;
+    }
+
+    /**
+     * Request a rebuild on the next refresh check, e.g. after new snapshots were captured.
+     */
+    public void markStale() {
+        stale.set(true);
+    }
+
+    @Scheduled(fixedDelay = REFRESH_CHECK_INTERVAL_MS, initialDelay = REFRESH_CHECK_INTERVAL_MS)
+    public void refreshIfNeeded() {
+        DashboardModel current = model;
+        long age = current == null ? Long.MAX_VALUE : System.currentTimeMillis() - current.builtAt().toEpochMilli();
+        if (age >= REFRESH_INTERVAL_MS || (stale.get() && age >= MIN_REBUILD_INTERVAL_MS)) {
+            try {
+                synchronized (buildLock) {
+                    rebuild();
+                }
+            } catch (Exception e) {
+                logger.error("Failed to rebuild dashboard model", e);
+            }
+        }
+    }
+
+    private DashboardModel rebuild() {
+        long start = System.currentTimeMillis();
+        stale.set(false);
+
+        Instant now = Instant.now();
+        LocalDate todayUtc = LocalDate.now(ZoneOffset.UTC);
+        UserDistribution users = new UserDistribution(now);
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<WynnExtrasUserRepository.UserStatsRow> rows = wynnExtrasUserRepository.streamUserStats()) {
+                rows.forEach(row -> users.add(row.getCreatedAt(), row.getLastSeen(), row.getModVersion()));
+            }
+        });
+
+        Map<LocalDate, DailyRetentionStats> retentionByDay = new HashMap<>();
+        for (DailyRetentionStats stats : retentionStatsRepository.findAll()) {
+            retentionByDay.put(stats.getActivityDate(), stats);
+        }
+        List<HeartbeatDay> heartbeatDays = buildHeartbeatDays(retentionByDay);
+        DailyRetentionStats today = retentionByDay.get(todayUtc);
+        List<UsageDay> usageDays = buildUsageDays();
+        Double latestUsagePercent = null;
+        for (UsageDay day : usageDays) {
+            if (day.usagePercent() != null) {
+                latestUsagePercent = day.usagePercent();
+            }
+        }
+
+        Summary summary = new Summary(
+                users.getTotalUsers(),
+                users.getActive7d(),
+                users.getActive14d(),
+                users.getInactive7d(),
+                users.getInactive14d(),
+                users.getInactive30d(),
+                today == null ? 0 : today.getNewUsers(),
+                today == null ? 0 : today.getReturnedAfterGap(),
+                latestUsagePercent);
+
+        DashboardModel built = new DashboardModel(
+                now,
+                summary,
+                users.getCreatedPerDay(),
+                users.getNewPerWeek(),
+                users.getLastSeenPerDay(),
+                users.getVersionsAllTime(),
+                users.getVersionsActive7d(),
+                users.getVersionsActive14d(),
+                users.getLastSeenByHour(),
+                buildActiveSnapshots(),
+                usageDays,
+                heartbeatDays,
+                buildVersionTimeline(),
+                buildGuildTimeline());
+        // Published before the model, so a non-null model always has its charts
+        charts = serializeCharts(built, now);
+        model = built;
+
+        logger.debug("Rebuilt dashboard model in {} ms", System.currentTimeMillis() - start);
+        return built;
+    }
+
+    private Map<String, ChartJson> serializeCharts(DashboardModel built, Instant now) {
+        Map<String, ChartJson> previous = charts;
+        Map<String, ChartJson> serialized = new HashMap<>();
+        for (Map.Entry<String, Object> chart : DashboardCharts.build(built).entrySet()) {
+            byte[] json;
+            try {
+                json = objectMapper.writeValueAsBytes(chart.getValue());
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize dashboard chart " + chart.getKey(), e);
+            }
+            String etag = "\"" + DigestUtils.md5DigestAsHex(json) + "\"";
+            ChartJson old = previous.get(chart.getKey());
+            serialized.put(chart.getKey(), old != null && old.etag().equals(etag) ? old : new ChartJson(json, etag, now));
+        }
+        return Map.copyOf(serialized);
+    }
+
+    private List<ActiveWindowDay> buildActiveSnapshots() {
+        List<ActiveUserSnapshot> snapshots = activeUserSnapshotRepository.findTop90ByOrderBySnapshotDateDesc();
+        Collections.reverse(snapshots);
+        return snapshots.stream()
+                .map(s -> new ActiveWindowDay(s.getSnapshotDate().toString(),
+                        s.getActive1d(), s.getActive3d(), s.getActive5d(), s.getActive7d(), s.getActive10d(), s.getActive14d()))
+                .toList();
+    }
+
+    private List<UsageDay> buildUsageDays() {
+        List<WynncraftUsageSnapshot> snapshots = wynncraftUsageSnapshotRepository.findTop90ByOrderBySnapshotDateDesc();
+        if (snapshots.isEmpty()) {
+            return List.of();
+        }
+        Collections.reverse(snapshots);
+        // Samples of every snapshot day in one query
+        Map<LocalDate, WynncraftUsageStatsService.UsageDayBreakdown> breakdowns = wynncraftUsageStatsService.buildDailySampleBreakdowns(
+                snapshots.get(0).getSnapshotDate(), snapshots.get(snapshots.size() - 1).getSnapshotDate());
+
+        List<UsageDay> days = new ArrayList<>(snapshots.size());
+        for (WynncraftUsageSnapshot s : snapshots) {
+            LocalDate date = s.getSnapshotDate();
+            WynncraftUsageStatsService.UsageDayBreakdown breakdown = breakdowns.get(date);
+            List<WynncraftUsageStatsService.UsageSampleBreakdown> samples = breakdown.samples();
+            WynncraftUsageStatsService.UsageSampleStats stats = breakdown.stats();
+            boolean hasSamples = stats.sampleCount() > 0;
+
+            Double usagePercent;
+            Double lowest = null;
+            Double highest = null;
+            if (hasSamples) {
+                usagePercent = stats.averageUsagePercent();
+                lowest = stats.lowestUsagePercent();
+                highest = stats.highestUsagePercent();
+            } else if (s.getErrorMessage() != null) {
+                usagePercent = null;
+            } else {
+                usagePercent = s.getUsagePercent();
+            }
+
+            days.add(new UsageDay(
+                    date.toString(),
+                    usagePercent,
+                    lowest,
+                    highest,
+                    hasSamples ? stats.averageWynnExtrasUsers() : s.getWynnExtrasUsers(),
+                    hasSamples ? stats.averageVisiblePlayers() : s.getUniquePlayers(),
+                    s.getTotalOnlinePlayers(),
+                    hasSamples ? stats.sampleCount() : s.getSampleCount(),
+                    samples));
+        }
+        return days;
+    }
+
+    private List<HeartbeatDay> buildHeartbeatDays(Map<LocalDate, DailyRetentionStats> retentionByDay) {
+        List<Object[]> rows = dailyUserActivityRepository.findDailyHeartbeatStats();
+        List<HeartbeatDay> days = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            LocalDate day = (LocalDate) row[0];
+            DailyRetentionStats retention = retentionByDay.get(day);
+            days.add(new HeartbeatDay(
+                    day.toString(),
+                    ((Number) row[1]).longValue(),
+                    ((Number) row[2]).longValue(),
+                    retention == null ? 0 : retention.getNewUsers(),
+                    retention == null ? 0 : retention.getReturnedAfterGap(),
+                    retention == null ? 0 : retention.getD1Retained()));
+        }
+        return days;
+    }
+
+    private VersionTimeline buildVersionTimeline() {
+        List<VersionUsageSnapshot> snapshots = versionUsageSnapshotRepository.findTop1000ByOrderBySnapshotDateAscModVersionAsc();
+        Set<String> dates = new LinkedHashSet<>();
+        Set<String> versions = new LinkedHashSet<>();
+        Map<String, Map<String, VersionUsageSnapshot>> byDateVersion = new HashMap<>();
+        for (VersionUsageSnapshot s : snapshots) {
+            String day = s.getSnapshotDate().toString();
+            dates.add(day);
+            versions.add(s.getModVersion());
+            byDateVersion.computeIfAbsent(day, ignored -> new HashMap<>()).put(s.getModVersion(), s);
+        }
+
+        List<String> days = List.copyOf(dates);
+        List<VersionSeries> series = new ArrayList<>(versions.size());
+        for (String version : versions) {
+            long[] all = new long[days.size()];
+            long[] active1d = new long[days.size()];
+            long[] active3d = new long[days.size()];
+            long[] active7d = new long[days.size()];
+            long[] active14d = new long[days.size()];
+            for (int i = 0; i < days.size(); i++) {
+                VersionUsageSnapshot s = byDateVersion.getOrDefault(days.get(i), Map.of()).get(version);
+                if (s == null) continue;
+                all[i] = s.getUserCount();
+                active1d[i] = s.getActive1dCount();
+                active3d[i] = s.getActive3dCount();
+                active7d[i] = s.getActive7dCount();
+                active14d[i] = s.getActive14dCount();
+            }
+            series.add(new VersionSeries(version, all, active1d, active3d, active7d, active14d));
+        }
+        return new VersionTimeline(days, series);
+    }
+
+    private GuildTimeline buildGuildTimeline() {
+        List<GuildUserSnapshot> snapshots = guildUserSnapshotRepository.findTop1000ByOrderBySnapshotDateAscGuildTagAsc();
+        Set<String> dates = new LinkedHashSet<>();
+        Set<String> tags = new LinkedHashSet<>();
+        Map<String, Map<String, GuildUserSnapshot>> byDateTag = new HashMap<>();
+        for (GuildUserSnapshot s : snapshots) {
+            String day = s.getSnapshotDate().toString();
+            dates.add(day);
+            tags.add(s.getGuildTag());
+            byDateTag.computeIfAbsent(day, ignored -> new HashMap<>()).put(s.getGuildTag(), s);
+        }
+
+        List<String> days = List.copyOf(dates);
+        List<GuildSeries> series = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            List<Integer> active = new ArrayList<>(days.size());
+            List<Double> adoptionAll = new ArrayList<>(days.size());
+            List<Double> adoption7d = new ArrayList<>(days.size());
+            List<Double> adoption14d = new ArrayList<>(days.size());
+            for (String day : days) {
+                GuildUserSnapshot s = byDateTag.getOrDefault(day, Map.of()).get(tag);
+                boolean usable = s != null && s.getErrorMessage() == null;
+                active.add(usable ? s.getActive7d() : null);
+                if (!usable || s.getMemberCount() == 0) {
+                    adoptionAll.add(null);
+                    adoption7d.add(null);
+                    adoption14d.add(null);
+                } else {
+                    adoptionAll.add((double) s.getWynnExtrasUsersTotal() * 100.0 / s.getMemberCount());
+                    adoption7d.add((double) s.getActive7d() * 100.0 / s.getMemberCount());
+                    adoption14d.add((double) s.getActive14d() * 100.0 / s.getMemberCount());
+                }
+            }
+            series.add(new GuildSeries(tag, active, adoptionAll, adoption7d, adoption14d));
+        }
+        return new GuildTimeline(days, series);
+    }
+}
@@ -0,0 +1,100 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.AuthSession;
+import com.julianh06.wynnextras_server.repository.AuthSessionRepository;
+import com.julianh06.wynnextras_server.util.ExpiringCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * Session store backed by the auth_session table with a local read-through cache.
+ *
+ * Sessions survive restarts and are visible to every node sharing the database.
+ * A token is looked up in the database only the first time this node sees it;
+ * after that it is served from the cache until it expires.
+ */
+@Service
+@ConditionalOnProperty(name = "wynnextras.auth.session-store", havingValue = "database", matchIfMissing = true)
+public class DatabaseSessionStore implements SessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseSessionStore.class);
+
+    private final AuthSessionRepository sessionRepository;
+    private final ExpiringCache<String, AuthService.SessionData> cache;
+
+    public DatabaseSessionStore(
+            AuthSessionRepository sessionRepository,
+            @Value("${wynnextras.auth.session-cache.max-size:50000}") int maxCachedSessions) {
+        this.sessionRepository = sessionRepository;
+        this.cache = new ExpiringCache<>(maxCachedSessions);
+    }
+
+    @Override
+    public void save(String token, AuthService.SessionData session) {
+        sessionRepository.save(new AuthSession(
+                hashToken(token),
+                session.uuid,
+                session.username,
+                Instant.ofEpochMilli(session.expiresAt)));
+        cache.put(token, session, session.expiresAt);
+    }
+
+    @Override
+    public AuthService.SessionData find(String token) {
+        AuthService.SessionData cached = cache.get(token);
+        if (cached != null) {
+            return cached;
+        }
+
+        AuthService.SessionData loaded = sessionRepository.findById(hashToken(token))
+                .map(s -> new AuthService.SessionData(s.getPlayerUuid(), s.getUsername(), s.getExpiresAt().toEpochMilli()))
+                .orElse(null);
+        if (loaded != null) {
+            cache.put(token, loaded, loaded.expiresAt);
+        }
+        return loaded;
+    }
+
+    @Override
+    public void remove(String token) {
+        cache.remove(token);
+        sessionRepository.deleteById(hashToken(token));
+    }
+
+    @Override
+    public void evictExpired() {
+        cache.evictExpired();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return cache.getStats();
+    }
+
+    @Scheduled(cron = "0 15 * * * *", zone = "UTC")
+    public void deleteExpiredSessions() {
+        int deleted = sessionRepository.deleteExpiredBefore(Instant.now());
+        if (deleted > 0) {
+            logger.info("Deleted {} expired sessions", deleted);
+        }
+    }
+
+    private static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
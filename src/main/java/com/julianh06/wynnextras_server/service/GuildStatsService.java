@@ -1,55 +1,44 @@
 package com.julianh06.wynnextras_server.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.julianh06.wynnextras_server.WynncraftService;
 import com.julianh06.wynnextras_server.entity.WynnExtrasUser;
 import com.julianh06.wynnextras_server.repository.WynnExtrasUserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.net.URI;
-import java.net.URLEncoder;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Service
 public class GuildStatsService {
     private static final String[] RANKS = {"owner", "chief", "strategist", "captain", "recruiter", "recruit"};
-
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(java.time.Duration.ofSeconds(10))
-            .build();
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
 
     @Autowired
     private WynnExtrasUserRepository wynnExtrasUserRepository;
 
+    @Autowired
+    private WynncraftService wynncraftService;
+
     public GuildLookupResult lookupGuild(String tag) throws GuildLookupException, InterruptedException {
-        try {
-            String url = "https://api.wynncraft.com/v3/guild/prefix/" + URLEncoder.encode(tag.trim(), StandardCharsets.UTF_8);
-            HttpRequest req = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(java.time.Duration.ofSeconds(10))
-                    .GET()
-                    .build();
-            HttpResponse<String> resp = httpClient.send(req, HttpResponse.BodyHandlers.ofString());
-
-            if (resp.statusCode() == 404) {
-                throw new GuildLookupException(404, "Guild not found");
-            }
-            if (resp.statusCode() != 200) {
-                throw new GuildLookupException(502, "Wynncraft API error: " + resp.statusCode());
-            }
+        return lookupGuild(tag, REQUEST_TIMEOUT);
+    }
 
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode root = mapper.readTree(resp.body());
+    /**
+     * Look up a guild, waiting for the shared Wynncraft rate limit and the API response for at
+     * most {@code timeout} together.
+     */
+    public GuildLookupResult lookupGuild(String tag, Duration timeout) throws GuildLookupException, InterruptedException {
+        try {
+            JsonNode root = wynncraftService.fetchGuildByPrefix(tag, timeout);
 
             String guildName = root.path("name").asText();
             String guildPrefix = root.path("prefix").asText();
@@ -86,7 +75,15 @@ public class GuildStatsService {
             }
 
             return new GuildLookupResult(guildName, guildPrefix, members);
-        } catch (GuildLookupException | InterruptedException e) {
+        } catch (WynncraftService.WynncraftApiException e) {
+            if (e.getStatusCode() == 404) {
+                throw new GuildLookupException(404, "Guild not found");
+            }
+            if (e.getStatusCode() == 429 || e.getStatusCode() == 504) {
+                throw new GuildLookupException(e.getStatusCode(), e.getMessage());
+            }
+            throw new GuildLookupException(502, e.getMessage());
+        } catch (InterruptedException e) {
             throw e;
         } catch (Exception e) {
             throw new GuildLookupException(502, "Error: " + e.getMessage());
@@ -94,29 +91,36 @@ public class GuildStatsService {
     }
 
     public GuildSnapshotStats buildSnapshotStats(String tag, Instant snapshotInstant) throws GuildLookupException, InterruptedException {
-        GuildLookupResult lookup = lookupGuild(tag);
+        return buildSnapshotStats(tag, snapshotInstant, REQUEST_TIMEOUT);
+    }
+
+    public GuildSnapshotStats buildSnapshotStats(String tag, Instant snapshotInstant, Duration timeout)
+            throws GuildLookupException, InterruptedException {
+        GuildLookupResult lookup = lookupGuild(tag, timeout);
         GuildSnapshotStats stats = new GuildSnapshotStats();
         stats.guildTag = lookup.guildPrefix;
         stats.guildName = lookup.guildName;
         stats.memberCount = lookup.members.size();
 
-        Instant cutoff1 = snapshotInstant.minus(1, ChronoUnit.DAYS);
-        Instant cutoff3 = snapshotInstant.minus(3, ChronoUnit.DAYS);
-        Instant cutoff5 = snapshotInstant.minus(5, ChronoUnit.DAYS);
-        Instant cutoff7 = snapshotInstant.minus(7, ChronoUnit.DAYS);
-        Instant cutoff10 = snapshotInstant.minus(10, ChronoUnit.DAYS);
-        Instant cutoff14 = snapshotInstant.minus(14, ChronoUnit.DAYS);
-
+        // Members were already matched against wynnextras_user by the lookup
+        Instant cutoff1d = snapshotInstant.minus(1, ChronoUnit.DAYS);
+        Instant cutoff3d = snapshotInstant.minus(3, ChronoUnit.DAYS);
+        Instant cutoff5d = snapshotInstant.minus(5, ChronoUnit.DAYS);
+        Instant cutoff7d = snapshotInstant.minus(7, ChronoUnit.DAYS);
+        Instant cutoff10d = snapshotInstant.minus(10, ChronoUnit.DAYS);
+        Instant cutoff14d = snapshotInstant.minus(14, ChronoUnit.DAYS);
+        Set<String> counted = new HashSet<>();
         for (GuildMember member : lookup.members) {
-            if (!member.isUser) continue;
+            if (!member.isUser || !counted.add(member.uuid)) continue;
             stats.wynnExtrasUsersTotal++;
-            if (member.lastSeen == null) continue;
-            if (member.lastSeen.isAfter(cutoff1)) stats.active1d++;
-            if (member.lastSeen.isAfter(cutoff3)) stats.active3d++;
-            if (member.lastSeen.isAfter(cutoff5)) stats.active5d++;
-            if (member.lastSeen.isAfter(cutoff7)) stats.active7d++;
-            if (member.lastSeen.isAfter(cutoff10)) stats.active10d++;
-            if (member.lastSeen.isAfter(cutoff14)) stats.active14d++;
+            Instant lastSeen = member.lastSeen;
+            if (lastSeen == null) continue;
+            if (lastSeen.isAfter(cutoff1d)) stats.active1d++;
+            if (lastSeen.isAfter(cutoff3d)) stats.active3d++;
+            if (lastSeen.isAfter(cutoff5d)) stats.active5d++;
+            if (lastSeen.isAfter(cutoff7d)) stats.active7d++;
+            if (lastSeen.isAfter(cutoff10d)) stats.active10d++;
+            if (lastSeen.isAfter(cutoff14d)) stats.active14d++;
         }
 
         return stats;
@@ -0,0 +1,135 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.DailyUserActivity;
+import com.julianh06.wynnextras_server.entity.WynnExtrasUser;
+import com.julianh06.wynnextras_server.repository.DailyUserActivityRepository;
+import com.julianh06.wynnextras_server.repository.WynnExtrasUserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes coalesced heartbeats from {@link HeartbeatBuffer} in a single transaction.
+ * Existing rows are loaded with one IN query per table and updated through dirty checking,
+ * so Hibernate can batch the resulting UPDATE statements.
+ */
+@Service
+public class HeartbeatBatchWriter {
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatBatchWriter.class);
+
+    private final WynnExtrasUserRepository userRepository;
+    private final DailyUserActivityRepository dailyUserActivityRepository;
+    private final UserFirstSeenService userFirstSeenService;
+
+    public HeartbeatBatchWriter(
+            WynnExtrasUserRepository userRepository,
+            DailyUserActivityRepository dailyUserActivityRepository,
+            UserFirstSeenService userFirstSeenService) {
+        this.userRepository = userRepository;
+        this.dailyUserActivityRepository = dailyUserActivityRepository;
+        this.userFirstSeenService = userFirstSeenService;
+    }
+
+    public record Entry(
+            LocalDate activityDate,
+            String uuid,
+            String username,
+            String modVersion,
+            String badgeIconId,
+            String badgeColorId,
+            Instant firstHeartbeatAt,
+            Instant lastHeartbeatAt,
+            long heartbeatCount) {}
+
+    @Transactional
+    public void write(List<Entry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+
+        writeUsers(entries);
+        writeDailyActivity(entries);
+    }
+
+    private void writeUsers(List<Entry> entries) {
+        // An entry exists per UTC day, so a user can appear twice around midnight - latest wins
+        Map<String, Entry> latestByUuid = new HashMap<>();
+        for (Entry entry : entries) {
+            latestByUuid.merge(entry.uuid(), entry,
+                    (a, b) -> b.lastHeartbeatAt().isAfter(a.lastHeartbeatAt()) ? b : a);
+        }
+
+        List<WynnExtrasUser> toSave = new ArrayList<>();
+        Map<String, WynnExtrasUser> existing = new HashMap<>();
+        for (WynnExtrasUser user : userRepository.findAllById(latestByUuid.keySet())) {
+            existing.put(user.getUuid(), user);
+        }
+
+        for (Entry entry : latestByUuid.values()) {
+            WynnExtrasUser user = existing.get(entry.uuid());
+            if (user == null) {
+                user = new WynnExtrasUser(entry.uuid(), entry.username(), entry.modVersion());
+                user.setCreatedAt(entry.firstHeartbeatAt());
+                logger.info("Registered new WynnExtras user: {} ({})", entry.username(), entry.uuid());
+            } else if (user.getLastSeen() != null && user.getLastSeen().isAfter(entry.lastHeartbeatAt())) {
+                continue;
+            }
+            user.setUsername(entry.username());
+            user.setModVersion(entry.modVersion());
+            user.setBadgeIconId(entry.badgeIconId());
+            user.setBadgeColorId(entry.badgeColorId());
+            user.setLastSeen(entry.lastHeartbeatAt());
+            toSave.add(user);
+        }
+
+        userRepository.saveAll(toSave);
+    }
+
+    private void writeDailyActivity(List<Entry> entries) {
+        Map<LocalDate, Map<String, Entry>> byDate = new HashMap<>();
+        for (Entry entry : entries) {
+            byDate.computeIfAbsent(entry.activityDate(), ignored -> new HashMap<>()).put(entry.uuid(), entry);
+        }
+
+        List<DailyUserActivity> toSave = new ArrayList<>();
+        List<UserFirstSeenService.ActiveDay> newActiveDays = new ArrayList<>();
+        for (Map.Entry<LocalDate, Map<String, Entry>> day : byDate.entrySet()) {
+            Map<String, Entry> entriesByUuid = day.getValue();
+            Map<String, DailyUserActivity> existing = new HashMap<>();
+            for (DailyUserActivity activity : dailyUserActivityRepository
+                    .findByActivityDateAndUserUuidIn(day.getKey(), entriesByUuid.keySet())) {
+                existing.put(activity.getUserUuid(), activity);
+            }
+
+            for (Entry entry : entriesByUuid.values()) {
+                DailyUserActivity activity = existing.get(entry.uuid());
+                if (activity == null) {
+                    activity = new DailyUserActivity(
+                            entry.activityDate(),
+                            entry.uuid(),
+                            entry.username(),
+                            entry.modVersion(),
+                            entry.firstHeartbeatAt(),
+                            entry.lastHeartbeatAt(),
+                            entry.heartbeatCount());
+                    newActiveDays.add(new UserFirstSeenService.ActiveDay(entry.uuid(), entry.activityDate()));
+                } else {
+                    activity.recordHeartbeats(entry.username(), entry.modVersion(),
+                            entry.heartbeatCount(), entry.lastHeartbeatAt());
+                }
+                toSave.add(activity);
+            }
+        }
+
+        dailyUserActivityRepository.saveAll(toSave);
+        userFirstSeenService.recordActiveDays(newActiveDays);
+    }
+}
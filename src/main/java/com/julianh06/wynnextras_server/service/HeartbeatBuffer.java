@@ -0,0 +1,272 @@
+package com.julianh06.wynnextras_server.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for client heartbeats.
+ *
+ * Heartbeats are acknowledged immediately and coalesced in memory per (UTC day, UUID).
+ * A scheduled flush writes the merged deltas to wynnextras_user and daily_user_activity
+ * in one batched transaction instead of four round-trips per ping.
+ *
+ * If the database is unreachable the whole batch is re-queued as is. Any other failure splits the
+ * batch in halves until the failing entries are isolated, so one bad entry (say a username
+ * too long for its column) cannot hold back everyone else's heartbeats. An entry that fails on
+ * its own is re-queued and dropped after {@value #MAX_FLUSH_ATTEMPTS} failed flushes.
+ * Re-queued entries never push the buffer past its capacity.
+ */
+@Service
+public class HeartbeatBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(HeartbeatBuffer.class);
+    private static final int MAX_PENDING_ENTRIES = 50_000;
+    private static final long FLUSH_INTERVAL_MS = 5_000;
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final Map<PendingKey, PendingHeartbeat> pending = new ConcurrentHashMap<>();
+    private final HeartbeatBatchWriter batchWriter;
+    private final Object flushLock = new Object();
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong flushedEntries = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong droppedFailing = new AtomicLong();
+    private final AtomicLong droppedOverCapacity = new AtomicLong();
+    private volatile long lastFlushDurationMs;
+    private volatile Instant lastFlushAt;
+
+    public HeartbeatBuffer(HeartbeatBatchWriter batchWriter) {
+        this.batchWriter = batchWriter;
+    }
+
+    /**
+     * Queue a heartbeat for the next flush.
+     *
+     * @return false if the buffer is full and the heartbeat was rejected
+     */
+    public boolean enqueue(String uuid, String username, String modVersion,
+                           String badgeIconId, String badgeColorId, Instant heartbeatAt) {
+        PendingKey key = new PendingKey(LocalDate.ofInstant(heartbeatAt, ZoneOffset.UTC), uuid);
+
+        if (pending.size() >= MAX_PENDING_ENTRIES && !pending.containsKey(key)) {
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        PendingHeartbeat incoming = new PendingHeartbeat(username, modVersion, badgeIconId, badgeColorId, heartbeatAt, 1);
+        pending.merge(key, incoming, (existing, next) -> {
+            coalesced.incrementAndGet();
+            return existing.mergeWith(next);
+        });
+        accepted.incrementAndGet();
+        return true;
+    }
+
+    @Scheduled(fixedDelay = FLUSH_INTERVAL_MS, initialDelay = FLUSH_INTERVAL_MS)
+    public void flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            List<Map.Entry<PendingKey, PendingHeartbeat>> batch = new ArrayList<>(drain().entrySet());
+            long start = System.currentTimeMillis();
+
+            try {
+                batchWriter.write(toEntries(batch));
+                flushedEntries.addAndGet(batch.size());
+                lastFlushAt = Instant.now();
+                logger.debug("Flushed {} buffered heartbeats", batch.size());
+            } catch (Exception e) {
+                flushFailures.incrementAndGet();
+                if (isTransient(e)) {
+                    requeue(batch);
+                    logger.error("Failed to flush {} buffered heartbeats, re-queued for next flush", batch.size(), e);
+                } else if (batch.size() == 1) {
+                    retryOrDrop(batch.get(0), e);
+                } else {
+                    logger.error("Failed to flush {} buffered heartbeats, retrying in smaller batches", batch.size(), e);
+                    writeInHalves(batch);
+                }
+            } finally {
+                lastFlushDurationMs = System.currentTimeMillis() - start;
+            }
+        }
+    }
+
+    /**
+     * Write both halves of a failed batch separately, down to single entries.
+     */
+    private void writeInHalves(List<Map.Entry<PendingKey, PendingHeartbeat>> batch) {
+        int middle = batch.size() / 2;
+        for (List<Map.Entry<PendingKey, PendingHeartbeat>> half : List.of(batch.subList(0, middle), batch.subList(middle, batch.size()))) {
+            try {
+                batchWriter.write(toEntries(half));
+                flushedEntries.addAndGet(half.size());
+            } catch (Exception e) {
+                if (isTransient(e)) {
+                    requeue(half);
+                    logger.error("Failed to flush {} buffered heartbeats, re-queued for next flush", half.size(), e);
+                } else if (half.size() == 1) {
+                    retryOrDrop(half.get(0), e);
+                } else {
+                    writeInHalves(half);
+                }
+            }
+        }
+    }
+
+    /**
+     * Re-queue a single entry that failed, or drop it once it failed too often.
+     */
+    private void retryOrDrop(Map.Entry<PendingKey, PendingHeartbeat> entry, Exception failure) {
+        PendingKey key = entry.getKey();
+        PendingHeartbeat heartbeat = entry.getValue().withFailedAttempt();
+        if (heartbeat.failedAttempts() >= MAX_FLUSH_ATTEMPTS) {
+            droppedFailing.incrementAndGet();
+            logger.error("Dropping buffered heartbeats of {} ({}) for {} after {} failed flushes: {}",
+                    heartbeat.username(), key.uuid(), key.activityDate(), heartbeat.failedAttempts(), failure.toString());
+        } else {
+            requeue(List.of(Map.entry(key, heartbeat)));
+        }
+    }
+
+    /**
+     * Failures that say nothing about the entries themselves, like a database that is down.
+     */
+    private static boolean isTransient(Exception e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("Flushing {} buffered heartbeats before shutdown", pending.size());
+        flush();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("capacity", MAX_PENDING_ENTRIES);
+        stats.put("accepted", accepted.get());
+        stats.put("coalesced", coalesced.get());
+        stats.put("rejected", rejected.get());
+        stats.put("flushedEntries", flushedEntries.get());
+        stats.put("flushFailures", flushFailures.get());
+        stats.put("droppedFailing", droppedFailing.get());
+        stats.put("droppedOverCapacity", droppedOverCapacity.get());
+        stats.put("lastFlushDurationMs", lastFlushDurationMs);
+        stats.put("lastFlushAt", lastFlushAt != null ? lastFlushAt.toString() : null);
+        return stats;
+    }
+
+    private Map<PendingKey, PendingHeartbeat> drain() {
+        Map<PendingKey, PendingHeartbeat> batch = new HashMap<>();
+        for (PendingKey key : new ArrayList<>(pending.keySet())) {
+            PendingHeartbeat heartbeat = pending.remove(key);
+            if (heartbeat != null) {
+                batch.put(key, heartbeat);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Put entries back for the next flush. Entries merge into newer heartbeats of the same key;
+     * new keys are dropped once the buffer is full.
+     */
+    private void requeue(List<Map.Entry<PendingKey, PendingHeartbeat>> batch) {
+        int dropped = 0;
+        for (Map.Entry<PendingKey, PendingHeartbeat> entry : batch) {
+            PendingKey key = entry.getKey();
+            if (pending.size() >= MAX_PENDING_ENTRIES && !pending.containsKey(key)) {
+                dropped++;
+                continue;
+            }
+            pending.merge(key, entry.getValue(), PendingHeartbeat::mergeWith);
+        }
+        if (dropped > 0) {
+            droppedOverCapacity.addAndGet(dropped);
+            logger.warn("Dropped {} re-queued heartbeats, buffer is full", dropped);
+        }
+    }
+
+    private static List<HeartbeatBatchWriter.Entry> toEntries(List<Map.Entry<PendingKey, PendingHeartbeat>> batch) {
+        List<HeartbeatBatchWriter.Entry> entries = new ArrayList<>(batch.size());
+        batch.forEach(pendingEntry -> {
+            PendingKey key = pendingEntry.getKey();
+            PendingHeartbeat heartbeat = pendingEntry.getValue();
+            entries.add(new HeartbeatBatchWriter.Entry(
+                key.activityDate(),
+                key.uuid(),
+                heartbeat.username(),
+                heartbeat.modVersion(),
+                heartbeat.badgeIconId(),
+                heartbeat.badgeColorId(),
+                heartbeat.firstHeartbeatAt(),
+                heartbeat.lastHeartbeatAt(),
+                    heartbeat.heartbeatCount()));
+        });
+        return entries;
+    }
+
+    private record PendingKey(LocalDate activityDate, String uuid) {}
+
+    private record PendingHeartbeat(
+            String username,
+            String modVersion,
+            String badgeIconId,
+            String badgeColorId,
+            Instant firstHeartbeatAt,
+            Instant lastHeartbeatAt,
+            long heartbeatCount,
+            int failedAttempts) {
+
+        PendingHeartbeat(String username, String modVersion, String badgeIconId, String badgeColorId,
+                         Instant heartbeatAt, long heartbeatCount) {
+            this(username, modVersion, badgeIconId, badgeColorId, heartbeatAt, heartbeatAt, heartbeatCount, 0);
+        }
+
+        PendingHeartbeat withFailedAttempt() {
+            return new PendingHeartbeat(username, modVersion, badgeIconId, badgeColorId,
+                    firstHeartbeatAt, lastHeartbeatAt, heartbeatCount, failedAttempts + 1);
+        }
+
+        /**
+         * Latest heartbeat wins for user fields, counts add up, the higher failure count is kept
+         */
+        PendingHeartbeat mergeWith(PendingHeartbeat other) {
+            PendingHeartbeat latest = other.lastHeartbeatAt.isAfter(lastHeartbeatAt) ? other : this;
+            Instant first = other.firstHeartbeatAt.isBefore(firstHeartbeatAt) ? other.firstHeartbeatAt : firstHeartbeatAt;
+            return new PendingHeartbeat(
+                    latest.username,
+                    latest.modVersion,
+                    latest.badgeIconId,
+                    latest.badgeColorId,
+                    first,
+                    latest.lastHeartbeatAt,
+                    heartbeatCount + other.heartbeatCount,
+                    Math.max(failedAttempts, other.failedAttempts));
+        }
+    }
+}
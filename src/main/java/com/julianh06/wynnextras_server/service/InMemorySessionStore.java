@@ -0,0 +1,46 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.util.ExpiringCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+/**
+ * Process-local session store. Sessions are lost on restart and not shared between nodes.
+ */
+@Service
+@ConditionalOnProperty(name = "wynnextras.auth.session-store", havingValue = "memory")
+public class InMemorySessionStore implements SessionStore {
+    private final ExpiringCache<String, AuthService.SessionData> sessions;
+
+    public InMemorySessionStore(@Value("${wynnextras.auth.session-cache.max-size:50000}") int maxSessions) {
+        this.sessions = new ExpiringCache<>(maxSessions);
+    }
+
+    @Override
+    public void save(String token, AuthService.SessionData session) {
+        sessions.put(token, session, session.expiresAt);
+    }
+
+    @Override
+    public AuthService.SessionData find(String token) {
+        return sessions.get(token);
+    }
+
+    @Override
+    public void remove(String token) {
+        sessions.remove(token);
+    }
+
+    @Override
+    public void evictExpired() {
+        sessions.evictExpired();
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return sessions.getStats();
+    }
+}
@@ -0,0 +1,182 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.DailyRetentionStats;
+import com.julianh06.wynnextras_server.repository.DailyRetentionStatsRepository;
+import com.julianh06.wynnextras_server.repository.DailyUserActivityRepository;
+import com.julianh06.wynnextras_server.repository.UserFirstSeenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Computes per-day retention counts for every day in daily_user_activity in one pass and
+ * stores them in daily_retention_stats.
+ *
+ * The activity history is streamed ordered by (user, day), so for each row only the user's
+ * previous active day is needed:
+ * <ul>
+ *   <li>no previous day: the user is new on this day</li>
+ *   <li>previous day more than {@link #RETURN_GAP_DAYS} days back: returned after a gap</li>
+ *   <li>previous day is the day before: counts as D1 retained for this day</li>
+ * </ul>
+ * The full pass runs nightly to settle the finished days. In between, today's row is kept
+ * current from user_first_seen with indexed counts (see {@link UserFirstSeenService}).
+ */
+@Service
+public class RetentionService {
+    private static final Logger logger = LoggerFactory.getLogger(RetentionService.class);
+    private static final long TODAY_REFRESH_INTERVAL_MS = 5 * 60 * 1000;
+    static final int RETURN_GAP_DAYS = 7;
+
+    private final DailyUserActivityRepository dailyUserActivityRepository;
+    private final DailyRetentionStatsRepository retentionStatsRepository;
+    private final UserFirstSeenRepository userFirstSeenRepository;
+    private final UserFirstSeenService userFirstSeenService;
+    private final DashboardService dashboardService;
+    private volatile boolean fullSweepDone;
+
+    public RetentionService(
+            DailyUserActivityRepository dailyUserActivityRepository,
+            DailyRetentionStatsRepository retentionStatsRepository,
+            UserFirstSeenRepository userFirstSeenRepository,
+            UserFirstSeenService userFirstSeenService,
+            DashboardService dashboardService) {
+        this.dailyUserActivityRepository = dailyUserActivityRepository;
+        this.retentionStatsRepository = retentionStatsRepository;
+        this.userFirstSeenRepository = userFirstSeenRepository;
+        this.userFirstSeenService = userFirstSeenService;
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * Refresh today's row from user_first_seen: three indexed counts instead of a history scan.
+     * The first run after startup does the full pass instead.
+     */
+    @Scheduled(fixedDelay = TODAY_REFRESH_INTERVAL_MS, initialDelay = 10_000)
+    @Transactional
+    public void refreshToday() {
+        if (!fullSweepDone) {
+            recompute();
+            return;
+        }
+        if (!userFirstSeenService.isBackfilled()) {
+            return;
+        }
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        long newUsers = userFirstSeenRepository.countByFirstSeenDate(today);
+        long returned = userFirstSeenRepository.countReturnedAfterGap(today, today.minusDays(RETURN_GAP_DAYS));
+        long d1Retained = userFirstSeenRepository.countByLastActiveDateAndPreviousActiveDate(today, today.minusDays(1));
+
+        DailyRetentionStats stats = retentionStatsRepository.findById(today)
+                .orElseGet(() -> new DailyRetentionStats(today, 0, 0, 0, Instant.now()));
+        if (stats.getNewUsers() == newUsers && stats.getReturnedAfterGap() == returned && stats.getD1Retained() == d1Retained) {
+            return;
+        }
+        stats.setNewUsers(newUsers);
+        stats.setReturnedAfterGap(returned);
+        stats.setD1Retained(d1Retained);
+        stats.setComputedAt(Instant.now());
+        retentionStatsRepository.save(stats);
+        dashboardService.markStale();
+    }
+
+    /**
+     * Churned user counts (no activity for 7/14/30 days) from user_first_seen
+     */
+    public Map<String, Object> getStats() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("firstSeenBackfilled", userFirstSeenService.isBackfilled());
+        stats.put("trackedUsers", userFirstSeenRepository.count());
+        stats.put("inactive7d", userFirstSeenRepository.countByLastActiveDateBefore(today.minusDays(7)));
+        stats.put("inactive14d", userFirstSeenRepository.countByLastActiveDateBefore(today.minusDays(14)));
+        stats.put("inactive30d", userFirstSeenRepository.countByLastActiveDateBefore(today.minusDays(30)));
+        return stats;
+    }
+
+    @Scheduled(cron = "0 30 0 * * *", zone = "UTC")
+    @Transactional
+    public void recomputeNightly() {
+        recompute();
+    }
+
+    /**
+     * Full single-pass recompute of every day.
+     */
+    @Transactional
+    public void recompute() {
+        long start = System.currentTimeMillis();
+        Map<LocalDate, long[]> countsByDay = new TreeMap<>();
+        long rows = 0;
+
+        try (Stream<DailyUserActivityRepository.UserActivityDay> activity = dailyUserActivityRepository.streamUserActivityDays()) {
+            String currentUser = null;
+            LocalDate previousDay = null;
+            Iterator<DailyUserActivityRepository.UserActivityDay> it = activity.iterator();
+            while (it.hasNext()) {
+                DailyUserActivityRepository.UserActivityDay row = it.next();
+                LocalDate day = row.getActivityDate();
+                if (!row.getUserUuid().equals(currentUser)) {
+                    currentUser = row.getUserUuid();
+                    previousDay = null;
+                }
+
+                // [new, returned after gap, d1 retained]
+                long[] counts = countsByDay.computeIfAbsent(day, ignored -> new long[3]);
+                if (previousDay == null) {
+                    counts[0]++;
+                } else {
+                    long gap = ChronoUnit.DAYS.between(previousDay, day);
+                    if (gap > RETURN_GAP_DAYS) counts[1]++;
+                    if (gap == 1) counts[2]++;
+                }
+                previousDay = day;
+                rows++;
+            }
+        }
+
+        Instant computedAt = Instant.now();
+        Map<LocalDate, DailyRetentionStats> existing = new HashMap<>();
+        for (DailyRetentionStats stats : retentionStatsRepository.findAll()) {
+            existing.put(stats.getActivityDate(), stats);
+        }
+        List<DailyRetentionStats> toSave = new ArrayList<>(countsByDay.size());
+        for (Map.Entry<LocalDate, long[]> entry : countsByDay.entrySet()) {
+            long[] counts = entry.getValue();
+            DailyRetentionStats stats = existing.get(entry.getKey());
+            if (stats == null) {
+                toSave.add(new DailyRetentionStats(entry.getKey(), counts[0], counts[1], counts[2], computedAt));
+            } else if (stats.getNewUsers() != counts[0] || stats.getReturnedAfterGap() != counts[1] || stats.getD1Retained() != counts[2]) {
+                stats.setNewUsers(counts[0]);
+                stats.setReturnedAfterGap(counts[1]);
+                stats.setD1Retained(counts[2]);
+                stats.setComputedAt(computedAt);
+                toSave.add(stats);
+            }
+        }
+        retentionStatsRepository.saveAll(toSave);
+
+        if (!toSave.isEmpty()) {
+            dashboardService.markStale();
+        }
+        fullSweepDone = true;
+        logger.info("Recomputed retention for {} days from {} activity rows in {} ms ({} days changed)",
+                countsByDay.size(), rows, System.currentTimeMillis() - start, toSave.size());
+    }
+}
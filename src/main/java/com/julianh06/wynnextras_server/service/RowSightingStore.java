@@ -0,0 +1,74 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.repository.WynncraftPlayerSightingRepository;
+import com.julianh06.wynnextras_server.util.PlayerUuids;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One wynncraft_player_sighting row per player and sample; counts are SQL aggregates.
+ */
+@Service
+@ConditionalOnProperty(name = "wynnextras.usage.sighting-store", havingValue = "rows", matchIfMissing = true)
+public class RowSightingStore implements SightingStore {
+    private final WynncraftPlayerSightingRepository playerSightingRepository;
+    private final SightingBatchWriter sightingBatchWriter;
+
+    public RowSightingStore(
+            WynncraftPlayerSightingRepository playerSightingRepository,
+            SightingBatchWriter sightingBatchWriter) {
+        this.playerSightingRepository = playerSightingRepository;
+        this.sightingBatchWriter = sightingBatchWriter;
+    }
+
+    @Override
+    public void store(Instant sampledAt, PlayerUuids players) {
+        sightingBatchWriter.write(sampledAt, players);
+    }
+
+    @Override
+    public long countSamplesBetween(Instant start, Instant end) {
+        return playerSightingRepository.countSamplesBetween(start, end);
+    }
+
+    @Override
+    public Instant findFirstSampleTime() {
+        return playerSightingRepository.findFirstSampledAt();
+    }
+
+    @Override
+    public long countUniquePlayersBetween(Instant start, Instant end) {
+        return playerSightingRepository.countUniquePlayersSeenInRange(start, end);
+    }
+
+    @Override
+    public long countDailyActiveWynnExtrasUsersSeenBetween(Instant start, Instant end, LocalDate activityDate) {
+        return playerSightingRepository.countDailyActiveWynnExtrasUsersSeenBetween(start, end, activityDate);
+    }
+
+    @Override
+    public List<SampleCounts> findSampleCountsBetween(Instant start, Instant end) {
+        return playerSightingRepository.findUsageSampleBreakdownBetween(start, end).stream()
+                .map(row -> new SampleCounts(row.getSampledAt(), row.getVisiblePlayers(), row.getWynnExtrasUsers()))
+                .toList();
+    }
+
+    @Override
+    public long deleteSamplesBetween(Instant start, Instant end) {
+        long samples = playerSightingRepository.countSamplesBetween(start, end);
+        if (samples > 0) {
+            playerSightingRepository.deleteBySampledAtBetween(start, end);
+        }
+        return samples;
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of("store", "rows", "writer", sightingBatchWriter.getStats());
+    }
+}
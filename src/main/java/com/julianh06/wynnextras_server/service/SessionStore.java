@@ -0,0 +1,55 @@
+package com.julianh06.wynnextras_server.service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * Storage for sessions issued by {@link AuthService}.
+ *
+ * Selected with {@code wynnextras.auth.session-store}:
+ * {@code database} (default, survives restarts and is shared between nodes), {@code memory}
+ * or {@code signed} (stateless HMAC-signed tokens with a small revocation list shared through
+ * the database, see {@link SignedSessionStore}).
+ */
+public interface SessionStore {
+    SecureRandom TOKEN_RANDOM = new SecureRandom();
+
+    /**
+     * Create a token for a freshly verified session. By default a random opaque token
+     * that is remembered via {@link #save}.
+     */
+    default String issue(AuthService.SessionData session) {
+        byte[] bytes = new byte[32];
+        TOKEN_RANDOM.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        save(token, session);
+        return token;
+    }
+
+    void save(String token, AuthService.SessionData session);
+
+    /**
+     * @return the session for this token, or null if unknown. Expiry is checked by the caller.
+     */
+    AuthService.SessionData find(String token);
+
+    void remove(String token);
+
+    /**
+     * Invalidate every session of a player.
+     *
+     * @return false if this store does not support revoking by player
+     * @throws IllegalStateException if the revocation cannot be recorded
+     */
+    default boolean revokePlayer(String uuid) {
+        return false;
+    }
+
+    /**
+     * Drop expired sessions from memory (and storage, if the store owns it).
+     */
+    void evictExpired();
+
+    Map<String, Object> getStats();
+}
@@ -0,0 +1,154 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.SightingRollup;
+import com.julianh06.wynnextras_server.repository.SightingRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.TemporalAdjusters;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Folds the raw online player sightings into per-day and per-week distinct player counts
+ * (wynncraft_sighting_rollup) and deletes raw samples older than
+ * {@code wynnextras.usage.sighting-retention-days}, one UTC day at a time, so the sighting
+ * store only ever holds the retention window.
+ *
+ * A day is only deleted once its day and week rollups exist. The per-sample usage breakdowns
+ * (usage_sample_summary) and daily usage snapshots are separate tables and stay.
+ */
+@Service
+public class SightingRollupService {
+    private static final Logger logger = LoggerFactory.getLogger(SightingRollupService.class);
+    // Leaves time for the week rollup and the nightly usage summary recompute of a day
+    private static final int MIN_RETENTION_DAYS = 14;
+
+    private final SightingRollupRepository rollupRepository;
+    private final SightingStore sightingStore;
+    private final TransactionTemplate transactionTemplate;
+    private final int retentionDays;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public SightingRollupService(
+            SightingRollupRepository rollupRepository,
+            SightingStore sightingStore,
+            TransactionTemplate transactionTemplate,
+            @Value("${wynnextras.usage.sighting-retention-days:90}") int retentionDays) {
+        this.rollupRepository = rollupRepository;
+        this.sightingStore = sightingStore;
+        this.transactionTemplate = transactionTemplate;
+        if (retentionDays > 0 && retentionDays < MIN_RETENTION_DAYS) {
+            logger.warn("wynnextras.usage.sighting-retention-days={} is below the minimum, using {}", retentionDays, MIN_RETENTION_DAYS);
+            retentionDays = MIN_RETENTION_DAYS;
+        }
+        this.retentionDays = retentionDays;
+    }
+
+    public record RollupResult(int days, int weeks, long samplesDeleted) {}
+
+    public List<SightingRollup> findBetween(SightingRollup.Period period, LocalDate from, LocalDate to) {
+        return rollupRepository.findByPeriodAndPeriodStartBetweenOrderByPeriodStartAsc(period, from, to);
+    }
+
+    @Scheduled(cron = "0 30 1 * * *", zone = "UTC")
+    public void rollupAndPruneNightly() {
+        try {
+            rollupAndPrune();
+        } catch (Exception e) {
+            logger.error("Failed to roll up and prune Wynncraft player sightings", e);
+        }
+    }
+
+    /**
+     * Roll up every completed day and week not rolled up yet, then delete the raw samples of
+     * the days past the retention window.
+     *
+     * @return what was done, or null if a run is already in progress
+     */
+    public RollupResult rollupAndPrune() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            Instant firstSample = sightingStore.findFirstSampleTime();
+            if (firstSample == null) {
+                return new RollupResult(0, 0, 0);
+            }
+            LocalDate today = LocalDate.now(ZoneOffset.UTC);
+            LocalDate firstDay = LocalDate.ofInstant(firstSample, ZoneOffset.UTC);
+
+            int days = 0;
+            for (LocalDate day = nextPeriodStart(SightingRollup.Period.DAY, firstDay, 1); day.isBefore(today); day = day.plusDays(1)) {
+                rollup(SightingRollup.Period.DAY, day, day.plusDays(1));
+                days++;
+            }
+
+            int weeks = 0;
+            LocalDate firstWeek = firstDay.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            for (LocalDate week = nextPeriodStart(SightingRollup.Period.WEEK, firstWeek, 7); !week.plusDays(7).isAfter(today); week = week.plusDays(7)) {
+                rollup(SightingRollup.Period.WEEK, week, week.plusDays(7));
+                weeks++;
+            }
+
+            long deleted = retentionDays > 0 ? prune(firstDay, today.minusDays(retentionDays)) : 0;
+            logger.info("Rolled up {} days and {} weeks of Wynncraft player sightings, deleted {} samples in {} ms",
+                    days, weeks, deleted, System.currentTimeMillis() - start);
+            return new RollupResult(days, weeks, deleted);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * The period after the last one rolled up, but not before {@code firstPeriod}.
+     */
+    private LocalDate nextPeriodStart(SightingRollup.Period period, LocalDate firstPeriod, int periodDays) {
+        LocalDate last = rollupRepository.findLastPeriodStart(period);
+        return last == null || last.isBefore(firstPeriod) ? firstPeriod : last.plusDays(periodDays);
+    }
+
+    private void rollup(SightingRollup.Period period, LocalDate from, LocalDate to) {
+        Instant start = from.atStartOfDay().toInstant(ZoneOffset.UTC);
+        Instant end = to.atStartOfDay().toInstant(ZoneOffset.UTC);
+        long uniquePlayers = sightingStore.countUniquePlayersBetween(start, end);
+        long sampleCount = sightingStore.countSamplesBetween(start, end);
+
+        SightingRollup rollup = rollupRepository.findByPeriodAndPeriodStart(period, from)
+                .orElseGet(() -> new SightingRollup(period, from));
+        rollup.setUniquePlayers(uniquePlayers);
+        rollup.setSampleCount(sampleCount);
+        rollup.setComputedAt(Instant.now());
+        rollupRepository.save(rollup);
+    }
+
+    /**
+     * Delete the raw samples of the days in [firstDay, cutoff), one day per transaction.
+     */
+    private long prune(LocalDate firstDay, LocalDate cutoff) {
+        long deleted = 0;
+        for (LocalDate day = firstDay; day.isBefore(cutoff); day = day.plusDays(1)) {
+            LocalDate week = day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            if (rollupRepository.findByPeriodAndPeriodStart(SightingRollup.Period.DAY, day).isEmpty()
+                    || rollupRepository.findByPeriodAndPeriodStart(SightingRollup.Period.WEEK, week).isEmpty()) {
+                logger.warn("Keeping Wynncraft player sightings of {}, not rolled up yet", day);
+                break;
+            }
+
+            Instant start = day.atStartOfDay().toInstant(ZoneOffset.UTC);
+            Instant end = day.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+            Long samples = transactionTemplate.execute(status -> sightingStore.deleteSamplesBetween(start, end));
+            deleted += samples == null ? 0 : samples;
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,59 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.util.PlayerUuids;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storage for the hourly Wynncraft online player samples used by the usage stats.
+ *
+ * Selected with {@code wynnextras.usage.sighting-store}: {@code rows} (default, one
+ * wynncraft_player_sighting row per player and sample) or {@code bitmap} (one compressed id
+ * bitmap per sample, see {@link BitmapSightingStore}).
+ */
+public interface SightingStore {
+    record SampleCounts(Instant sampledAt, long visiblePlayers, long wynnExtrasUsers) {}
+
+    void store(Instant sampledAt, PlayerUuids players);
+
+    long countSamplesBetween(Instant start, Instant end);
+
+    /**
+     * @return time of the oldest stored sample, or null if there is none
+     */
+    Instant findFirstSampleTime();
+
+    long countUniquePlayersBetween(Instant start, Instant end);
+
+    /**
+     * Distinct players seen in [start, end) that have daily_user_activity on the given day.
+     */
+    long countDailyActiveWynnExtrasUsersSeenBetween(Instant start, Instant end, LocalDate activityDate);
+
+    /**
+     * Per sample in [start, end): players seen, and how many of them sent a heartbeat within
+     * the 24 hours before the sample.
+     */
+    List<SampleCounts> findSampleCountsBetween(Instant start, Instant end);
+
+    /**
+     * Delete the samples in [start, end). Must be called inside a transaction.
+     *
+     * @return number of samples deleted
+     */
+    long deleteSamplesBetween(Instant start, Instant end);
+
+    /**
+     * Copy the samples stored as wynncraft_player_sighting rows into this store.
+     *
+     * @return number of samples imported, or -1 if this store does not support importing
+     */
+    default long importFromRows() {
+        return -1;
+    }
+
+    Map<String, Object> getStats();
+}
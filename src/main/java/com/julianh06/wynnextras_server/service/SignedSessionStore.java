@@ -0,0 +1,306 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.SessionRevocation;
+import com.julianh06.wynnextras_server.repository.SessionRevocationRepository;
+import com.julianh06.wynnextras_server.util.ExpiringCache;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stateless sessions: the token itself carries uuid, username and expiry and is signed with
+ * HMAC-SHA256, so validating it needs no lookup and any node holding the key accepts it.
+ *
+ * Token: base64url(payload) "." base64url(hmac(payload)), payload layout (big endian):
+ * <pre>
+ * byte    format version (1)
+ * byte    signing key id
+ * long    issued at (epoch millis)
+ * long    expires at (epoch millis)
+ * long, long  player UUID
+ * byte    username length + UTF-8 username
+ * </pre>
+ *
+ * Keys are configured as {@code wynnextras.auth.signing-keys=<id>:<base64 secret>,...}. The
+ * first key signs new tokens, the others are only accepted, so a key can be rotated by putting
+ * a new one in front and dropping the old one after {@link AuthService#SESSION_DURATION_MS}.
+ *
+ * Revocations (single tokens by signature, or every token of a player issued at or before a
+ * point in time) are written to the session_revocation table and kept in a local list, so a
+ * token check never touches the database. The list is loaded on startup and every node polls
+ * the table every {@value #REVOCATION_POLL_INTERVAL_MS} ms for revocations written elsewhere.
+ * Entries expire together with the tokens they cover and expired rows are deleted.
+ * A revocation is never dropped before it expires: once
+ * {@code wynnextras.auth.revocation-list.max-size} live entries are held, further revocations
+ * are refused with an {@link IllegalStateException}.
+ */
+@Service
+@ConditionalOnProperty(name = "wynnextras.auth.session-store", havingValue = "signed")
+public class SignedSessionStore implements SessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(SignedSessionStore.class);
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final int FORMAT_VERSION = 1;
+    private static final long REVOCATION_POLL_INTERVAL_MS = 5_000;
+    // Rows are polled by their write time; the overlap covers late commits and clock skew between nodes
+    private static final long REVOCATION_POLL_OVERLAP_MS = 60_000;
+
+    private final Map<Integer, SecretKeySpec> keys = new HashMap<>();
+    private final int signingKeyId;
+    private final SessionRevocationRepository revocationRepository;
+
+    // token signature -> revoked, expires with the token; only written with tryPut, so never LRU-evicted
+    private final ExpiringCache<String, Boolean> revokedTokens;
+    // player uuid -> tokens issued at or before this time are revoked; same as above
+    private final ExpiringCache<String, Long> revokedPlayers;
+    private volatile Instant lastPollAt;
+
+    public SignedSessionStore(
+            SessionRevocationRepository revocationRepository,
+            @Value("${wynnextras.auth.signing-keys:}") String signingKeys,
+            @Value("${wynnextras.auth.revocation-list.max-size:10000}") int maxRevocations) {
+        Integer firstKeyId = null;
+        for (String entry : signingKeys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] parts = entry.trim().split(":", 2);
+            if (parts.length != 2) {
+                throw new IllegalStateException("Invalid signing key entry, expected <id>:<base64 secret>");
+            }
+            int keyId = Integer.parseInt(parts[0].trim());
+            byte[] secret = Base64.getDecoder().decode(parts[1].trim());
+            if (keyId < 0 || keyId > 255 || secret.length < 32) {
+                throw new IllegalStateException("Signing key " + keyId + " must have an id of 0-255 and at least 32 bytes");
+            }
+            keys.put(keyId, new SecretKeySpec(secret, HMAC_ALGORITHM));
+            if (firstKeyId == null) {
+                firstKeyId = keyId;
+            }
+        }
+        if (firstKeyId == null) {
+            throw new IllegalStateException("wynnextras.auth.signing-keys must be set when using signed sessions");
+        }
+        this.signingKeyId = firstKeyId;
+        this.revocationRepository = revocationRepository;
+        this.revokedTokens = new ExpiringCache<>(maxRevocations);
+        this.revokedPlayers = new ExpiringCache<>(maxRevocations);
+        logger.info("Signed sessions enabled with key {} ({} keys accepted)", signingKeyId, keys.size());
+    }
+
+    /**
+     * Load every live revocation before any token is checked. If the table cannot be read the
+     * application does not start, rather than accepting revoked tokens.
+     */
+    @PostConstruct
+    public void loadRevocations() {
+        int loaded = pollRevocations(Instant.EPOCH);
+        logger.info("Loaded {} session revocations", loaded);
+    }
+
+    @Scheduled(fixedDelay = REVOCATION_POLL_INTERVAL_MS, initialDelay = REVOCATION_POLL_INTERVAL_MS)
+    public void pollRevocations() {
+        try {
+            pollRevocations(lastPollAt.minusMillis(REVOCATION_POLL_OVERLAP_MS));
+        } catch (Exception e) {
+            logger.error("Failed to poll session revocations", e);
+        }
+    }
+
+    @Override
+    public String issue(AuthService.SessionData session) {
+        byte[] username = session.username.getBytes(StandardCharsets.UTF_8);
+        int usernameLength = Math.min(username.length, 255);
+
+        ByteBuffer payload = ByteBuffer.allocate(35 + usernameLength);
+        payload.put((byte) FORMAT_VERSION);
+        payload.put((byte) signingKeyId);
+        payload.putLong(System.currentTimeMillis());
+        payload.putLong(session.expiresAt);
+        payload.putLong(Long.parseUnsignedLong(session.uuid.substring(0, 16), 16));
+        payload.putLong(Long.parseUnsignedLong(session.uuid.substring(16, 32), 16));
+        payload.put((byte) usernameLength);
+        payload.put(username, 0, usernameLength);
+
+        byte[] bytes = payload.array();
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        return encoder.encodeToString(bytes) + "." + encoder.encodeToString(sign(keys.get(signingKeyId), bytes));
+    }
+
+    /**
+     * Signed tokens are issued through {@link #issue}, there is nothing to store.
+     */
+    @Override
+    public void save(String token, AuthService.SessionData session) {
+    }
+
+    @Override
+    public AuthService.SessionData find(String token) {
+        int separator = token.indexOf('.');
+        if (separator <= 0) {
+            return null;
+        }
+
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = Base64.getUrlDecoder().decode(token.substring(0, separator));
+            signature = Base64.getUrlDecoder().decode(token.substring(separator + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length < 35 || payload[0] != FORMAT_VERSION) {
+            return null;
+        }
+
+        SecretKeySpec key = keys.get(payload[1] & 0xFF);
+        if (key == null || !MessageDigest.isEqual(sign(key, payload), signature)) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 2, payload.length - 2);
+        long issuedAt = buffer.getLong();
+        long expiresAt = buffer.getLong();
+        String uuid = String.format("%016x%016x", buffer.getLong(), buffer.getLong());
+        int usernameLength = buffer.get() & 0xFF;
+        if (buffer.remaining() != usernameLength) {
+            return null;
+        }
+        String username = new String(payload, buffer.position(), usernameLength, StandardCharsets.UTF_8);
+
+        if (revokedTokens.get(token.substring(separator + 1)) != null) {
+            return null;
+        }
+        Long revokedBefore = revokedPlayers.get(uuid);
+        if (revokedBefore != null && issuedAt <= revokedBefore) {
+            return null;
+        }
+
+        return new AuthService.SessionData(uuid, username, expiresAt);
+    }
+
+    @Override
+    public void remove(String token) {
+        AuthService.SessionData session = find(token);
+        // Expired tokens are rejected anyway, only live ones need a revocation entry
+        if (session == null || session.isExpired()) {
+            return;
+        }
+        String signature = token.substring(token.indexOf('.') + 1);
+        if (!revokedTokens.tryPut(signature, Boolean.TRUE, session.expiresAt)) {
+            throw new IllegalStateException("Token revocation list is full");
+        }
+        persist(SessionRevocation.Kind.TOKEN, signature, System.currentTimeMillis(), session.expiresAt);
+    }
+
+    @Override
+    public boolean revokePlayer(String uuid) {
+        long now = System.currentTimeMillis();
+        long expiresAt = now + AuthService.SESSION_DURATION_MS;
+        if (!revokedPlayers.tryPut(uuid, now, expiresAt)) {
+            throw new IllegalStateException("Player revocation list is full");
+        }
+        persist(SessionRevocation.Kind.PLAYER, uuid, now, expiresAt);
+        return true;
+    }
+
+    @Override
+    public void evictExpired() {
+        revokedTokens.evictExpired();
+        revokedPlayers.evictExpired();
+        try {
+            int deleted = revocationRepository.deleteExpiredBefore(Instant.now());
+            if (deleted > 0) {
+                logger.info("Deleted {} expired session revocations", deleted);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Failed to delete expired session revocations: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "signingKeyId", signingKeyId,
+                "acceptedKeys", keys.size(),
+                "revokedTokens", revokedTokens.getStats(),
+                "revokedPlayers", revokedPlayers.getStats(),
+                "lastRevocationPollAt", String.valueOf(lastPollAt)
+        );
+    }
+
+    /**
+     * Write a revocation to the table so other nodes and later restarts see it. The local list
+     * already holds it, so this node keeps rejecting the token even if the write fails.
+     */
+    private void persist(SessionRevocation.Kind kind, String key, long revokedBefore, long expiresAt) {
+        try {
+            SessionRevocation revocation = revocationRepository.findByKindAndRevocationKey(kind, key)
+                    .orElseGet(() -> new SessionRevocation(kind, key));
+            revocation.setRevokedBefore(Instant.ofEpochMilli(revokedBefore));
+            revocation.setExpiresAt(Instant.ofEpochMilli(expiresAt));
+            revocationRepository.save(revocation);
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Revocation could not be persisted", e);
+        }
+    }
+
+    /**
+     * Merge the live revocations written at or after {@code since} into the local lists.
+     *
+     * @return the number of revocations read
+     */
+    private int pollRevocations(Instant since) {
+        Instant start = Instant.now();
+        List<SessionRevocation> revocations =
+                revocationRepository.findByRevokedBeforeGreaterThanEqualAndExpiresAtAfter(since, start);
+        int refused = 0;
+        for (SessionRevocation revocation : revocations) {
+            String key = revocation.getRevocationKey();
+            long expiresAt = revocation.getExpiresAt().toEpochMilli();
+            boolean held;
+            if (revocation.getKind() == SessionRevocation.Kind.TOKEN) {
+                held = revokedTokens.tryPut(key, Boolean.TRUE, expiresAt);
+            } else {
+                Long known = revokedPlayers.get(key);
+                long revokedBefore = revocation.getRevokedBefore().toEpochMilli();
+                held = revokedPlayers.tryPut(key, known != null ? Math.max(known, revokedBefore) : revokedBefore, expiresAt);
+            }
+            if (!held) {
+                refused++;
+            }
+        }
+        if (refused > 0) {
+            logger.error("{} session revocations do not fit in the revocation list (max-size reached), raise "
+                    + "wynnextras.auth.revocation-list.max-size", refused);
+        }
+        lastPollAt = start;
+        return revocations.size();
+    }
+
+    private static byte[] sign(SecretKeySpec key, byte[] payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 not available", e);
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.julianh06.wynnextras_server.service;
 import com.julianh06.wynnextras_server.entity.ActiveUserSnapshot;
 import com.julianh06.wynnextras_server.entity.GuildUserSnapshot;
 import com.julianh06.wynnextras_server.entity.VersionUsageSnapshot;
-import com.julianh06.wynnextras_server.entity.WynnExtrasUser;
 import com.julianh06.wynnextras_server.repository.ActiveUserSnapshotRepository;
 import com.julianh06.wynnextras_server.repository.GuildUserSnapshotRepository;
 import com.julianh06.wynnextras_server.repository.VersionUsageSnapshotRepository;
@@ -12,25 +11,41 @@ import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
-import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class StatsSnapshotService {
     private static final Logger logger = LoggerFactory.getLogger(StatsSnapshotService.class);
 
-    private static final List<String> TRACKED_GUILDS = List.of(
-            "SEQ", "Aeq", "AVO", "ANO", "ESI", "Nia", "PUN", "HOC", "DUDE",
-            "TAq", "BFS", "ICo", "PROF", "Zamn", "HSP", "TBGM", "DEU", "Tsd"
-    );
+    private static final int GUILD_LOOKUP_ATTEMPTS = 3;
+    private static final long GUILD_RETRY_BASE_DELAY_MS = 1000;
+
+    @Value("${wynnextras.stats.tracked-guilds:SEQ,Aeq,AVO,ANO,ESI,Nia,PUN,HOC,DUDE,TAq,BFS,ICo,PROF,Zamn,HSP,TBGM,DEU,Tsd}")
+    private List<String> trackedGuilds;
+
+    @Value("${wynnextras.stats.guild-snapshot.parallelism:4}")
+    private int guildSnapshotParallelism;
+
+    // Per guild, covering rate limit waits, retries and the API requests themselves
+    @Value("${wynnextras.stats.guild-snapshot.timeout-ms:60000}")
+    private long guildSnapshotTimeoutMs;
 
     @Autowired private WynnExtrasUserRepository wynnExtrasUserRepository;
     @Autowired private ActiveUserSnapshotRepository activeUserSnapshotRepository;
@@ -38,6 +53,7 @@ public class StatsSnapshotService {
     @Autowired private GuildUserSnapshotRepository guildUserSnapshotRepository;
     @Autowired private GuildStatsService guildStatsService;
     @Autowired private WynncraftUsageStatsService wynncraftUsageStatsService;
+    @Autowired private DashboardService dashboardService;
 
     @Scheduled(cron = "0 0 1 * * *", zone = "UTC")
     public void captureDailySnapshots() {
@@ -61,104 +77,163 @@ public class StatsSnapshotService {
         }
         wynncraftUsageStatsService.captureDailyUsageSnapshot(snapshotDate, snapshotInstant, totalOnlinePlayers);
         captureGuildSnapshots(snapshotDate, snapshotInstant);
+        dashboardService.markStale();
     }
 
     private void captureActiveUserSnapshot(LocalDate snapshotDate, Instant snapshotInstant) {
         ActiveUserSnapshot snapshot = activeUserSnapshotRepository.findBySnapshotDate(snapshotDate)
                 .orElseGet(() -> new ActiveUserSnapshot(snapshotDate, snapshotInstant));
 
+        WynnExtrasUserRepository.ActivityWindowCounts counts = wynnExtrasUserRepository.countActivityWindows(snapshotInstant);
         snapshot.setCapturedAt(snapshotInstant);
-        snapshot.setActive1d(wynnExtrasUserRepository.countActiveUsersSince(snapshotInstant.minus(1, ChronoUnit.DAYS)));
-        snapshot.setActive3d(wynnExtrasUserRepository.countActiveUsersSince(snapshotInstant.minus(3, ChronoUnit.DAYS)));
-        snapshot.setActive5d(wynnExtrasUserRepository.countActiveUsersSince(snapshotInstant.minus(5, ChronoUnit.DAYS)));
-        snapshot.setActive7d(wynnExtrasUserRepository.countActiveUsersSince(snapshotInstant.minus(7, ChronoUnit.DAYS)));
-        snapshot.setActive10d(wynnExtrasUserRepository.countActiveUsersSince(snapshotInstant.minus(10, ChronoUnit.DAYS)));
-        snapshot.setActive14d(wynnExtrasUserRepository.countActiveUsersSince(snapshotInstant.minus(14, ChronoUnit.DAYS)));
+        snapshot.setActive1d(counts.getActive1d());
+        snapshot.setActive3d(counts.getActive3d());
+        snapshot.setActive5d(counts.getActive5d());
+        snapshot.setActive7d(counts.getActive7d());
+        snapshot.setActive10d(counts.getActive10d());
+        snapshot.setActive14d(counts.getActive14d());
 
         activeUserSnapshotRepository.save(snapshot);
     }
 
     private void captureVersionUsageSnapshots(LocalDate snapshotDate, Instant snapshotInstant) {
-        Instant cutoff1 = snapshotInstant.minus(1, ChronoUnit.DAYS);
-        Instant cutoff3 = snapshotInstant.minus(3, ChronoUnit.DAYS);
-        Instant cutoff7 = snapshotInstant.minus(7, ChronoUnit.DAYS);
-        Instant cutoff14 = snapshotInstant.minus(14, ChronoUnit.DAYS);
-        Map<String, VersionCounts> countsByVersion = new HashMap<>();
-
-        for (WynnExtrasUser user : wynnExtrasUserRepository.findAll()) {
-            String version = user.getModVersion();
-            if (version == null || version.isBlank()) {
-                continue;
-            }
-            VersionCounts counts = countsByVersion.computeIfAbsent(version, ignored -> new VersionCounts());
-            counts.total++;
-            if (user.getLastSeen() != null && user.getLastSeen().isAfter(cutoff1)) {
-                counts.active1++;
-            }
-            if (user.getLastSeen() != null && user.getLastSeen().isAfter(cutoff3)) {
-                counts.active3++;
-            }
-            if (user.getLastSeen() != null && user.getLastSeen().isAfter(cutoff7)) {
-                counts.active7++;
-            }
-            if (user.getLastSeen() != null && user.getLastSeen().isAfter(cutoff14)) {
-                counts.active14++;
-            }
-        }
-
-        for (Map.Entry<String, VersionCounts> entry : countsByVersion.entrySet()) {
+        for (WynnExtrasUserRepository.VersionActivityWindowCounts counts
+                : wynnExtrasUserRepository.countActivityWindowsByVersion(snapshotInstant)) {
             VersionUsageSnapshot snapshot = versionUsageSnapshotRepository
-                    .findBySnapshotDateAndModVersion(snapshotDate, entry.getKey())
-                    .orElseGet(() -> new VersionUsageSnapshot(snapshotDate, snapshotInstant, entry.getKey()));
-            VersionCounts counts = entry.getValue();
+                    .findBySnapshotDateAndModVersion(snapshotDate, counts.getModVersion())
+                    .orElseGet(() -> new VersionUsageSnapshot(snapshotDate, snapshotInstant, counts.getModVersion()));
             snapshot.setCapturedAt(snapshotInstant);
-            snapshot.setUserCount(counts.total);
-            snapshot.setActive1dCount(counts.active1);
-            snapshot.setActive3dCount(counts.active3);
-            snapshot.setActive7dCount(counts.active7);
-            snapshot.setActive14dCount(counts.active14);
+            snapshot.setUserCount(counts.getTotal());
+            snapshot.setActive1dCount(counts.getActive1d());
+            snapshot.setActive3dCount(counts.getActive3d());
+            snapshot.setActive7dCount(counts.getActive7d());
+            snapshot.setActive14dCount(counts.getActive14d());
             versionUsageSnapshotRepository.save(snapshot);
         }
     }
 
+    private record GuildCapture(String tag, GuildStatsService.GuildSnapshotStats stats, String errorMessage) {}
+
+    /**
+     * Look up all tracked guilds concurrently (bounded by the parallelism setting and the shared
+     * Wynncraft rate limit in {@link GuildStatsService}), then write the snapshots on this thread.
+     */
     private void captureGuildSnapshots(LocalDate snapshotDate, Instant snapshotInstant) {
-        for (String tag : TRACKED_GUILDS) {
-            GuildUserSnapshot snapshot = guildUserSnapshotRepository.findBySnapshotDateAndGuildTag(snapshotDate, tag)
-                    .orElseGet(() -> new GuildUserSnapshot(snapshotDate, snapshotInstant, tag));
-            snapshot.setCapturedAt(snapshotInstant);
+        List<String> tags = trackedGuilds.stream().map(String::trim).filter(tag -> !tag.isEmpty()).distinct().toList();
+        if (tags.isEmpty()) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(guildSnapshotParallelism, tags.size())), runnable -> {
+            Thread thread = new Thread(runnable, "guild-snapshot-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
 
+        List<GuildCapture> captures = new ArrayList<>(tags.size());
+        boolean interrupted = false;
+        try {
+            List<Future<GuildCapture>> futures = new ArrayList<>(tags.size());
+            for (String tag : tags) {
+                futures.add(executor.submit(() -> captureGuild(tag, snapshotInstant)));
+            }
+            for (int i = 0; i < tags.size(); i++) {
+                String tag = tags.get(i);
+                try {
+                    // Tasks may queue behind others, so allow for every round of the pool
+                    captures.add(futures.get(i).get(guildSnapshotTimeoutMs * tags.size(), TimeUnit.MILLISECONDS));
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    captures.add(new GuildCapture(tag, null, "Request interrupted"));
+                    break;
+                } catch (TimeoutException e) {
+                    futures.get(i).cancel(true);
+                    captures.add(new GuildCapture(tag, null, "Timed out"));
+                } catch (ExecutionException e) {
+                    captures.add(new GuildCapture(tag, null, e.getCause().getMessage()));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (GuildCapture capture : captures) {
+            saveGuildSnapshot(snapshotDate, snapshotInstant, capture);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            logger.warn("Interrupted while capturing guild snapshots");
+            return;
+        }
+        logger.info("Captured {} guild snapshots in {} ms ({} failed)", captures.size(), System.currentTimeMillis() - start,
+                captures.stream().filter(capture -> capture.errorMessage() != null).count());
+    }
+
+    /**
+     * Look up one guild, retrying failures other than unknown guilds with exponential backoff
+     * and full jitter, all within the per guild timeout.
+     */
+    private GuildCapture captureGuild(String tag, Instant snapshotInstant) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(guildSnapshotTimeoutMs);
+        String errorMessage = null;
+        for (int attempt = 1; attempt <= GUILD_LOOKUP_ATTEMPTS; attempt++) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
             try {
-                GuildStatsService.GuildSnapshotStats stats = guildStatsService.buildSnapshotStats(tag, snapshotInstant);
-                snapshot.setGuildName(stats.guildName);
-                snapshot.setMemberCount(stats.memberCount);
-                snapshot.setWynnExtrasUsersTotal(stats.wynnExtrasUsersTotal);
-                snapshot.setActive1d(stats.active1d);
-                snapshot.setActive3d(stats.active3d);
-                snapshot.setActive5d(stats.active5d);
-                snapshot.setActive7d(stats.active7d);
-                snapshot.setActive10d(stats.active10d);
-                snapshot.setActive14d(stats.active14d);
-                snapshot.setErrorMessage(null);
+                return new GuildCapture(tag, guildStatsService.buildSnapshotStats(tag, snapshotInstant, Duration.ofNanos(remainingNanos)), null);
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                snapshot.setErrorMessage("Request interrupted");
-                guildUserSnapshotRepository.save(snapshot);
-                logger.warn("Interrupted while capturing guild snapshot for {}", tag);
-                return;
+                return new GuildCapture(tag, null, "Request interrupted");
+            } catch (GuildStatsService.GuildLookupException e) {
+                errorMessage = e.getMessage();
+                if (e.getStatusCode() == 404) {
+                    break;
+                }
             } catch (Exception e) {
-                snapshot.setErrorMessage(e.getMessage());
-                logger.warn("Failed to capture guild snapshot for {}: {}", tag, e.getMessage());
+                errorMessage = e.getMessage();
             }
 
-            guildUserSnapshotRepository.save(snapshot);
+            if (attempt < GUILD_LOOKUP_ATTEMPTS) {
+                long backoffMs = ThreadLocalRandom.current().nextLong(GUILD_RETRY_BASE_DELAY_MS << (attempt - 1)) + 1;
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (backoffMs >= remainingMs) {
+                    break;
+                }
+                logger.debug("Guild snapshot lookup for {} failed (attempt {}), retrying in {} ms: {}", tag, attempt, backoffMs, errorMessage);
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return new GuildCapture(tag, null, "Request interrupted");
+                }
+            }
         }
+        logger.warn("Failed to capture guild snapshot for {}: {}", tag, errorMessage);
+        return new GuildCapture(tag, null, errorMessage != null ? errorMessage : "Timed out");
     }
 
-    private static class VersionCounts {
-        long total;
-        long active1;
-        long active3;
-        long active7;
-        long active14;
+    private void saveGuildSnapshot(LocalDate snapshotDate, Instant snapshotInstant, GuildCapture capture) {
+        GuildUserSnapshot snapshot = guildUserSnapshotRepository.findBySnapshotDateAndGuildTag(snapshotDate, capture.tag())
+                .orElseGet(() -> new GuildUserSnapshot(snapshotDate, snapshotInstant, capture.tag()));
+        snapshot.setCapturedAt(snapshotInstant);
+
+        GuildStatsService.GuildSnapshotStats stats = capture.stats();
+        if (stats != null) {
+            snapshot.setGuildName(stats.guildName);
+            snapshot.setMemberCount(stats.memberCount);
+            snapshot.setWynnExtrasUsersTotal(stats.wynnExtrasUsersTotal);
+            snapshot.setActive1d(stats.active1d);
+            snapshot.setActive3d(stats.active3d);
+            snapshot.setActive5d(stats.active5d);
+            snapshot.setActive7d(stats.active7d);
+            snapshot.setActive10d(stats.active10d);
+            snapshot.setActive14d(stats.active14d);
+        }
+        snapshot.setErrorMessage(capture.errorMessage());
+        guildUserSnapshotRepository.save(snapshot);
     }
 }
@@ -0,0 +1,183 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.BackfillMarker;
+import com.julianh06.wynnextras_server.entity.UsageSampleSummary;
+import com.julianh06.wynnextras_server.repository.BackfillMarkerRepository;
+import com.julianh06.wynnextras_server.repository.UsageSampleSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains usage_sample_summary, the per-sample usage breakdown read by the dashboard and the
+ * daily usage snapshots. A sample is summarized right after it is captured and again by the
+ * nightly recompute, once the heartbeats sent around it have been flushed.
+ */
+@Service
+public class UsageSampleSummaryService implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(UsageSampleSummaryService.class);
+    // Around the capture time, in case the database rounded the stored sample time
+    private static final Duration CAPTURE_MATCH_WINDOW = Duration.ofSeconds(1);
+    private static final String BACKFILL_MARKER = "usage_sample_summary";
+    private static final long BACKFILL_RETRY_INTERVAL_MS = 10 * 60 * 1000;
+
+    private final UsageSampleSummaryRepository summaryRepository;
+    private final SightingStore sightingStore;
+    private final BackfillMarkerRepository backfillMarkerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean recomputeRunning = new AtomicBoolean();
+    private volatile boolean backfilled;
+
+    public UsageSampleSummaryService(
+            UsageSampleSummaryRepository summaryRepository,
+            SightingStore sightingStore,
+            BackfillMarkerRepository backfillMarkerRepository,
+            TransactionTemplate transactionTemplate) {
+        this.summaryRepository = summaryRepository;
+        this.sightingStore = sightingStore;
+        this.backfillMarkerRepository = backfillMarkerRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public List<UsageSampleSummary> findBetween(Instant start, Instant end) {
+        return summaryRepository.findBySampledAtGreaterThanEqualAndSampledAtLessThanOrderBySampledAtAsc(start, end);
+    }
+
+    /**
+     * Summarize a freshly captured sample.
+     */
+    public void summarize(Instant sampledAt) {
+        recompute(sampledAt.minus(CAPTURE_MATCH_WINDOW), sampledAt.plus(CAPTURE_MATCH_WINDOW));
+    }
+
+    /**
+     * (Re)compute the summaries of every sample in [start, end).
+     *
+     * @return number of samples summarized
+     */
+    public int recompute(Instant start, Instant end) {
+        List<SightingStore.SampleCounts> counts = sightingStore.findSampleCountsBetween(start, end);
+        if (counts.isEmpty()) {
+            return 0;
+        }
+
+        Instant computedAt = Instant.now();
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<Instant, UsageSampleSummary> existing = new HashMap<>();
+            for (UsageSampleSummary summary : findBetween(start, end)) {
+                existing.put(summary.getSampledAt(), summary);
+            }
+
+            List<UsageSampleSummary> summaries = new ArrayList<>(counts.size());
+            for (SightingStore.SampleCounts sample : counts) {
+                UsageSampleSummary summary = existing.get(sample.sampledAt());
+                if (summary == null) {
+                    summary = new UsageSampleSummary(sample.sampledAt());
+                }
+                summary.setVisiblePlayers(sample.visiblePlayers());
+                summary.setWynnExtrasUsers(sample.wynnExtrasUsers());
+                summary.setUsagePercent(sample.visiblePlayers() == 0
+                        ? 0.0
+                        : (double) sample.wynnExtrasUsers() * 100.0 / sample.visiblePlayers());
+                summary.setComputedAt(computedAt);
+                summaries.add(summary);
+            }
+            summaryRepository.saveAll(summaries);
+        });
+        return counts.size();
+    }
+
+    /**
+     * Recompute whole UTC days, one day per query and transaction.
+     *
+     * @return number of samples summarized, or -1 if a recompute is already running
+     */
+    public int recomputeDays(LocalDate from, LocalDate to) {
+        if (!recomputeRunning.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            int samples = 0;
+            for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+                samples += recompute(day.atStartOfDay().toInstant(ZoneOffset.UTC),
+                        day.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC));
+            }
+            logger.info("Recomputed {} usage sample summaries for {} to {} in {} ms",
+                    samples, from, to, System.currentTimeMillis() - start);
+            return samples;
+        } finally {
+            recomputeRunning.set(false);
+        }
+    }
+
+    /**
+     * Yesterday's samples, now that all heartbeats up to them are written.
+     */
+    @Scheduled(cron = "0 45 0 * * *", zone = "UTC")
+    public void recomputePreviousDay() {
+        LocalDate yesterday = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        try {
+            recomputeDays(yesterday, yesterday);
+        } catch (Exception e) {
+            logger.error("Failed to recompute usage sample summaries for {}", yesterday, e);
+        }
+    }
+
+    /**
+     * Summarize all stored samples on startup until that has completed once. The hourly capture
+     * may already have summarized a sample by now, so a non-empty table does not mean the
+     * history is in it.
+     */
+    @Override
+    public void run(String... args) {
+        try {
+            if (backfillMarkerRepository.existsById(BACKFILL_MARKER)) {
+                backfilled = true;
+                return;
+            }
+            backfill();
+        } catch (Exception e) {
+            logger.error("Failed to backfill usage sample summaries", e);
+        }
+    }
+
+    /**
+     * Retry a failed startup backfill.
+     */
+    @Scheduled(fixedDelay = BACKFILL_RETRY_INTERVAL_MS, initialDelay = BACKFILL_RETRY_INTERVAL_MS)
+    public void retryBackfill() {
+        if (backfilled) {
+            return;
+        }
+        try {
+            backfill();
+        } catch (Exception e) {
+            logger.error("Failed to backfill usage sample summaries", e);
+        }
+    }
+
+    private void backfill() {
+        Instant firstSample = sightingStore.findFirstSampleTime();
+        if (firstSample != null
+                && recomputeDays(LocalDate.ofInstant(firstSample, ZoneOffset.UTC), LocalDate.now(ZoneOffset.UTC)) < 0) {
+            // Another recompute is running, try again later
+            return;
+        }
+        backfillMarkerRepository.save(new BackfillMarker(BACKFILL_MARKER, Instant.now()));
+        backfilled = true;
+    }
+}
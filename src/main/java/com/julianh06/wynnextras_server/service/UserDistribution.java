@@ -0,0 +1,210 @@
+package com.julianh06.wynnextras_server.service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-pass aggregation of the user distribution charts (created per day/week, last seen per
+ * day and hour, version counts, activity windows).
+ *
+ * Users are fed one at a time with {@link #add}, usually straight from a projection query, and
+ * only land in primitive counters: per-day buckets indexed by epoch day, a 24 slot hour
+ * histogram and one counter array per mod version. Nothing per user is kept.
+ */
+public class UserDistribution {
+    private static final int ROLLING_AVERAGE_DAYS = 7;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final long MILLIS_PER_HOUR = 60L * 60 * 1000;
+
+    // Slots of the per-version counters
+    private static final int VERSION_ALL = 0;
+    private static final int VERSION_ACTIVE_7D = 1;
+    private static final int VERSION_ACTIVE_14D = 2;
+
+    private final long cutoff7d;
+    private final long cutoff14d;
+    private final long cutoff30d;
+
+    private final DayCounts createdPerDay = new DayCounts();
+    private final DayCounts lastSeenPerDay = new DayCounts();
+    private final int[] lastSeenByHour = new int[24];
+    // Insertion ordered so equal counts keep a stable order
+    private final Map<String, long[]> versionCounts = new LinkedHashMap<>();
+
+    private long totalUsers;
+    private long active7d;
+    private long active14d;
+    private long active30d;
+
+    public UserDistribution(Instant now) {
+        this.cutoff7d = now.minus(7, ChronoUnit.DAYS).toEpochMilli();
+        this.cutoff14d = now.minus(14, ChronoUnit.DAYS).toEpochMilli();
+        this.cutoff30d = now.minus(30, ChronoUnit.DAYS).toEpochMilli();
+    }
+
+    public void add(Instant createdAt, Instant lastSeen, String modVersion) {
+        totalUsers++;
+        if (createdAt != null) {
+            createdPerDay.increment(Math.floorDiv(createdAt.toEpochMilli(), MILLIS_PER_DAY));
+        }
+
+        boolean in7d = false;
+        boolean in14d = false;
+        if (lastSeen != null) {
+            long lastSeenMillis = lastSeen.toEpochMilli();
+            lastSeenPerDay.increment(Math.floorDiv(lastSeenMillis, MILLIS_PER_DAY));
+            lastSeenByHour[(int) (Math.floorMod(lastSeenMillis, MILLIS_PER_DAY) / MILLIS_PER_HOUR)]++;
+            in7d = lastSeenMillis > cutoff7d;
+            in14d = lastSeenMillis > cutoff14d;
+            if (in7d) active7d++;
+            if (in14d) active14d++;
+            if (lastSeenMillis > cutoff30d) active30d++;
+        }
+
+        if (modVersion != null && !modVersion.isBlank()) {
+            long[] counts = versionCounts.computeIfAbsent(modVersion, ignored -> new long[3]);
+            counts[VERSION_ALL]++;
+            if (in7d) counts[VERSION_ACTIVE_7D]++;
+            if (in14d) counts[VERSION_ACTIVE_14D]++;
+        }
+    }
+
+    public long getTotalUsers() { return totalUsers; }
+    public long getActive7d() { return active7d; }
+    public long getActive14d() { return active14d; }
+    public long getInactive7d() { return totalUsers - active7d; }
+    public long getInactive14d() { return totalUsers - active14d; }
+    public long getInactive30d() { return totalUsers - active30d; }
+
+    public int[] getLastSeenByHour() {
+        return lastSeenByHour.clone();
+    }
+
+    /**
+     * Days with at least one created user, with the running total.
+     */
+    public List<DashboardService.CreatedDay> getCreatedPerDay() {
+        List<DashboardService.CreatedDay> days = new ArrayList<>();
+        long cumulative = 0;
+        for (int i = 0; i < createdPerDay.counts.length; i++) {
+            long count = createdPerDay.counts[i];
+            if (count == 0) continue;
+            cumulative += count;
+            days.add(new DashboardService.CreatedDay(createdPerDay.dayAt(i), count, cumulative));
+        }
+        return days;
+    }
+
+    /**
+     * Weeks (keyed by their Monday) with at least one created user.
+     */
+    public List<DashboardService.DayCount> getNewPerWeek() {
+        List<DashboardService.DayCount> weeks = new ArrayList<>();
+        long currentMonday = Long.MIN_VALUE;
+        long weekCount = 0;
+        for (int i = 0; i < createdPerDay.counts.length; i++) {
+            long count = createdPerDay.counts[i];
+            if (count == 0) continue;
+            long epochDay = createdPerDay.firstDay + i;
+            // Epoch day 0 was a Thursday
+            long monday = epochDay - Math.floorMod(epochDay + 3, 7);
+            if (monday != currentMonday) {
+                if (weekCount > 0) {
+                    weeks.add(new DashboardService.DayCount(LocalDate.ofEpochDay(currentMonday).toString(), weekCount));
+                }
+                currentMonday = monday;
+                weekCount = 0;
+            }
+            weekCount += count;
+        }
+        if (weekCount > 0) {
+            weeks.add(new DashboardService.DayCount(LocalDate.ofEpochDay(currentMonday).toString(), weekCount));
+        }
+        return weeks;
+    }
+
+    /**
+     * Days with at least one last-seen user, each with the average over itself and the up to
+     * {@link #ROLLING_AVERAGE_DAYS} - 1 preceding such days (sliding window sum).
+     */
+    public List<DashboardService.LastSeenDay> getLastSeenPerDay() {
+        List<DashboardService.LastSeenDay> days = new ArrayList<>();
+        long[] window = new long[ROLLING_AVERAGE_DAYS];
+        long windowSum = 0;
+        int seen = 0;
+        for (int i = 0; i < lastSeenPerDay.counts.length; i++) {
+            long count = lastSeenPerDay.counts[i];
+            if (count == 0) continue;
+            int slot = seen % ROLLING_AVERAGE_DAYS;
+            windowSum += count - window[slot];
+            window[slot] = count;
+            seen++;
+            days.add(new DashboardService.LastSeenDay(
+                    lastSeenPerDay.dayAt(i), count, (double) windowSum / Math.min(seen, ROLLING_AVERAGE_DAYS)));
+        }
+        return days;
+    }
+
+    public List<DashboardService.VersionCount> getVersionsAllTime() {
+        return versionCounts(VERSION_ALL);
+    }
+
+    public List<DashboardService.VersionCount> getVersionsActive7d() {
+        return versionCounts(VERSION_ACTIVE_7D);
+    }
+
+    public List<DashboardService.VersionCount> getVersionsActive14d() {
+        return versionCounts(VERSION_ACTIVE_14D);
+    }
+
+    /**
+     * Versions with a non-zero count in the given slot, sorted by count descending.
+     */
+    private List<DashboardService.VersionCount> versionCounts(int slot) {
+        List<DashboardService.VersionCount> counts = new ArrayList<>();
+        for (Map.Entry<String, long[]> e : versionCounts.entrySet()) {
+            if (e.getValue()[slot] > 0) {
+                counts.add(new DashboardService.VersionCount(e.getKey(), e.getValue()[slot]));
+            }
+        }
+        counts.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return counts;
+    }
+
+    /**
+     * Counters for a contiguous, growing range of epoch days.
+     */
+    private static final class DayCounts {
+        private static final int INITIAL_DAYS = 64;
+
+        private long firstDay;
+        private long[] counts = new long[0];
+
+        void increment(long epochDay) {
+            if (counts.length == 0) {
+                firstDay = epochDay;
+                counts = new long[INITIAL_DAYS];
+            } else if (epochDay < firstDay) {
+                // Leave as much room again in front, so going further back does not copy every time
+                long newFirstDay = epochDay - counts.length;
+                long[] grown = new long[(int) (firstDay - newFirstDay) + counts.length];
+                System.arraycopy(counts, 0, grown, (int) (firstDay - newFirstDay), counts.length);
+                counts = grown;
+                firstDay = newFirstDay;
+            } else if (epochDay - firstDay >= counts.length) {
+                counts = Arrays.copyOf(counts, (int) Math.max(counts.length * 2L, epochDay - firstDay + 1));
+            }
+            counts[(int) (epochDay - firstDay)]++;
+        }
+
+        String dayAt(int index) {
+            return LocalDate.ofEpochDay(firstDay + index).toString();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.entity.BackfillMarker;
+import com.julianh06.wynnextras_server.entity.UserFirstSeen;
+import com.julianh06.wynnextras_server.repository.BackfillMarkerRepository;
+import com.julianh06.wynnextras_server.repository.DailyUserActivityRepository;
+import com.julianh06.wynnextras_server.repository.UserFirstSeenRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Maintains user_first_seen. Heartbeats update it whenever a user gets their first
+ * daily_user_activity row of a day; {@link #backfill()} builds it from existing history.
+ */
+@Service
+public class UserFirstSeenService implements CommandLineRunner {
+    private static final Logger logger = LoggerFactory.getLogger(UserFirstSeenService.class);
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+    private static final String BACKFILL_MARKER = "user_first_seen";
+    private static final long BACKFILL_RETRY_INTERVAL_MS = 10 * 60 * 1000;
+
+    private final UserFirstSeenRepository userFirstSeenRepository;
+    private final DailyUserActivityRepository dailyUserActivityRepository;
+    private final BackfillMarkerRepository backfillMarkerRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private volatile boolean backfilled;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public UserFirstSeenService(
+            UserFirstSeenRepository userFirstSeenRepository,
+            DailyUserActivityRepository dailyUserActivityRepository,
+            BackfillMarkerRepository backfillMarkerRepository,
+            TransactionTemplate transactionTemplate) {
+        this.userFirstSeenRepository = userFirstSeenRepository;
+        this.dailyUserActivityRepository = dailyUserActivityRepository;
+        this.backfillMarkerRepository = backfillMarkerRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public record ActiveDay(String userUuid, LocalDate day) {}
+
+    /**
+     * Record newly created activity days. Runs in the caller's transaction.
+     */
+    public void recordActiveDays(Collection<ActiveDay> activeDays) {
+        if (activeDays.isEmpty()) {
+            return;
+        }
+
+        Map<String, UserFirstSeen> byUuid = new HashMap<>();
+        for (UserFirstSeen existing : userFirstSeenRepository.findAllById(
+                activeDays.stream().map(ActiveDay::userUuid).distinct().toList())) {
+            byUuid.put(existing.getUserUuid(), existing);
+        }
+
+        List<ActiveDay> ordered = new ArrayList<>(activeDays);
+        ordered.sort(Comparator.comparing(ActiveDay::day));
+        for (ActiveDay activeDay : ordered) {
+            UserFirstSeen entry = byUuid.get(activeDay.userUuid());
+            if (entry == null) {
+                byUuid.put(activeDay.userUuid(), new UserFirstSeen(activeDay.userUuid(), activeDay.day(), activeDay.day(), null));
+            } else {
+                entry.recordActiveDay(activeDay.day());
+            }
+        }
+
+        userFirstSeenRepository.saveAll(byUuid.values());
+    }
+
+    public boolean isBackfilled() {
+        return backfilled;
+    }
+
+    /**
+     * Backfill on startup until a backfill has completed once. Heartbeats may already have
+     * written entries by now, so a non-empty table does not mean the history is in it.
+     */
+    @Override
+    public void run(String... args) {
+        try {
+            if (backfillMarkerRepository.existsById(BACKFILL_MARKER)) {
+                backfilled = true;
+                return;
+            }
+            backfill();
+        } catch (Exception e) {
+            logger.error("Failed to backfill user_first_seen", e);
+        }
+    }
+
+    /**
+     * Retry a failed startup backfill.
+     */
+    @Scheduled(fixedDelay = BACKFILL_RETRY_INTERVAL_MS, initialDelay = BACKFILL_RETRY_INTERVAL_MS)
+    public void retryBackfill() {
+        if (backfilled) {
+            return;
+        }
+        try {
+            backfill();
+        } catch (Exception e) {
+            logger.error("Failed to backfill user_first_seen", e);
+        }
+    }
+
+    /**
+     * Rebuild every user's entry from daily_user_activity, streamed in (user, day) order and
+     * written in batches. Entries written by heartbeats in the meantime are merged, not replaced.
+     *
+     * @return number of users written, or -1 if a backfill is already running
+     */
+    public int backfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return -1;
+        }
+        try {
+            Integer written = transactionTemplate.execute(status -> backfillInTransaction());
+            backfilled = true;
+            return written == null ? 0 : written;
+        } finally {
+            backfillRunning.set(false);
+        }
+    }
+
+    private int backfillInTransaction() {
+        long start = System.currentTimeMillis();
+        int written = 0;
+        try (Stream<DailyUserActivityRepository.UserActivityDay> activity = dailyUserActivityRepository.streamUserActivityDays()) {
+            List<UserFirstSeen> batch = new ArrayList<>(BACKFILL_BATCH_SIZE);
+            UserFirstSeen current = null;
+            Iterator<DailyUserActivityRepository.UserActivityDay> it = activity.iterator();
+            while (it.hasNext()) {
+                DailyUserActivityRepository.UserActivityDay row = it.next();
+                if (current == null || !current.getUserUuid().equals(row.getUserUuid())) {
+                    if (current != null) {
+                        batch.add(current);
+                        if (batch.size() >= BACKFILL_BATCH_SIZE) {
+                            written += writeBackfillBatch(batch);
+                            batch.clear();
+                        }
+                    }
+                    current = new UserFirstSeen(row.getUserUuid(), row.getActivityDate(), row.getActivityDate(), null);
+                } else {
+                    current.recordActiveDay(row.getActivityDate());
+                }
+            }
+            if (current != null) {
+                batch.add(current);
+            }
+            written += writeBackfillBatch(batch);
+            backfillMarkerRepository.save(new BackfillMarker(BACKFILL_MARKER, Instant.now()));
+
+            logger.info("Backfilled user_first_seen for {} users in {} ms", written, System.currentTimeMillis() - start);
+            return written;
+        }
+    }
+
+    private int writeBackfillBatch(List<UserFirstSeen> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, UserFirstSeen> existing = new HashMap<>();
+        for (UserFirstSeen entry : userFirstSeenRepository.findAllById(batch.stream().map(UserFirstSeen::getUserUuid).toList())) {
+            existing.put(entry.getUserUuid(), entry);
+        }
+
+        List<UserFirstSeen> toSave = new ArrayList<>(batch.size());
+        for (UserFirstSeen fromHistory : batch) {
+            UserFirstSeen live = existing.get(fromHistory.getUserUuid());
+            if (live == null) {
+                toSave.add(fromHistory);
+                continue;
+            }
+            live.recordActiveDay(fromHistory.getFirstSeenDate());
+            if (fromHistory.getPreviousActiveDate() != null) {
+                live.recordActiveDay(fromHistory.getPreviousActiveDate());
+            }
+            live.recordActiveDay(fromHistory.getLastActiveDate());
+            toSave.add(live);
+        }
+
+        userFirstSeenRepository.saveAll(toSave);
+        // Keep the persistence context from growing with the whole table
+        entityManager.flush();
+        entityManager.clear();
+        return toSave.size();
+    }
+}
@@ -1,10 +1,9 @@
 package com.julianh06.wynnextras_server.service;
 
 import com.julianh06.wynnextras_server.WynncraftService;
-import com.julianh06.wynnextras_server.entity.WynncraftPlayerSighting;
 import com.julianh06.wynnextras_server.entity.WynncraftUsageSnapshot;
-import com.julianh06.wynnextras_server.repository.WynncraftPlayerSightingRepository;
 import com.julianh06.wynnextras_server.repository.WynncraftUsageSnapshotRepository;
+import com.julianh06.wynnextras_server.util.PlayerUuids;
 import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,24 +13,29 @@ import org.springframework.stereotype.Service;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
 
 @Service
 public class WynncraftUsageStatsService {
     private static final Logger logger = LoggerFactory.getLogger(WynncraftUsageStatsService.class);
 
     private final WynncraftService wynncraftService;
-    private final WynncraftPlayerSightingRepository playerSightingRepository;
+    private final SightingStore sightingStore;
     private final WynncraftUsageSnapshotRepository usageSnapshotRepository;
+    private final UsageSampleSummaryService usageSampleSummaryService;
 
     public WynncraftUsageStatsService(
             WynncraftService wynncraftService,
-            WynncraftPlayerSightingRepository playerSightingRepository,
-            WynncraftUsageSnapshotRepository usageSnapshotRepository) {
+            SightingStore sightingStore,
+            WynncraftUsageSnapshotRepository usageSnapshotRepository,
+            UsageSampleSummaryService usageSampleSummaryService) {
         this.wynncraftService = wynncraftService;
-        this.playerSightingRepository = playerSightingRepository;
+        this.sightingStore = sightingStore;
         this.usageSnapshotRepository = usageSnapshotRepository;
+        this.usageSampleSummaryService = usageSampleSummaryService;
     }
 
     @Scheduled(cron = "0 5 * * * *", zone = "UTC")
@@ -49,22 +53,26 @@ public class WynncraftUsageStatsService {
 
     public CapturedOnlinePlayerSample captureOnlinePlayerSample(Instant sampledAt) {
         WynncraftService.OnlinePlayerSample sample = wynncraftService.fetchOnlinePlayerSample();
-        storeOnlinePlayerSample(sampledAt, sample.playerUuids());
-        return new CapturedOnlinePlayerSample(sample.playerUuids().size(), sample.totalOnlinePlayers());
+        storeOnlinePlayerSample(sampledAt, sample.players());
+        return new CapturedOnlinePlayerSample(sample.players().size(), sample.totalOnlinePlayers());
     }
 
-    public void storeOnlinePlayerSample(Instant sampledAt, Set<String> onlinePlayerUuids) {
-        if (onlinePlayerUuids == null || onlinePlayerUuids.isEmpty()) {
+    /**
+     * Store the players seen in a sample and summarize it. The UUIDs are already validated and
+     * deduplicated.
+     */
+    public void storeOnlinePlayerSample(Instant sampledAt, PlayerUuids onlinePlayers) {
+        if (onlinePlayers == null || onlinePlayers.size() == 0) {
             return;
         }
 
-        playerSightingRepository.saveAll(onlinePlayerUuids.stream()
-                .filter(uuid -> uuid != null && !uuid.isBlank())
-                .map(WynncraftUsageStatsService::normalizeUuid)
-                .filter(uuid -> uuid.matches("[0-9a-f]{32}"))
-                .distinct()
-                .map(uuid -> new WynncraftPlayerSighting(uuid, sampledAt))
-                .toList());
+        sightingStore.store(sampledAt, onlinePlayers);
+        try {
+            usageSampleSummaryService.summarize(sampledAt);
+        } catch (Exception e) {
+            // The nightly recompute fills it in
+            logger.warn("Failed to summarize Wynncraft online player sample at {}: {}", sampledAt, e.getMessage());
+        }
     }
 
     public List<UsageSampleBreakdown> buildSampleBreakdown(LocalDate snapshotDate) {
@@ -82,6 +90,26 @@ public class WynncraftUsageStatsService {
         return buildSampleBreakdownBetween(dayStart, dayEnd);
     }
 
+    /**
+     * Sample breakdowns with their stats for every UTC day in [from, to], read with a single
+     * query and grouped in memory. Days without samples get an empty breakdown.
+     */
+    public Map<LocalDate, UsageDayBreakdown> buildDailySampleBreakdowns(LocalDate from, LocalDate to) {
+        Map<LocalDate, List<UsageSampleBreakdown>> samplesByDay = new LinkedHashMap<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            samplesByDay.put(day, new ArrayList<>());
+        }
+        for (UsageSampleBreakdown sample : buildSampleBreakdownBetween(
+                from.atStartOfDay().toInstant(ZoneOffset.UTC),
+                to.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC))) {
+            samplesByDay.get(LocalDate.ofInstant(sample.sampledAt(), ZoneOffset.UTC)).add(sample);
+        }
+
+        Map<LocalDate, UsageDayBreakdown> days = new LinkedHashMap<>();
+        samplesByDay.forEach((day, samples) -> days.put(day, new UsageDayBreakdown(samples, buildSampleStats(samples))));
+        return days;
+    }
+
     public UsageSampleStats buildSampleStats(List<UsageSampleBreakdown> samples) {
         if (samples == null || samples.isEmpty()) {
             return UsageSampleStats.empty();
@@ -112,21 +140,14 @@ public class WynncraftUsageStatsService {
     }
 
     private List<UsageSampleBreakdown> buildSampleBreakdownBetween(Instant dayStart, Instant dayEnd) {
-        return playerSightingRepository
-                .findUsageSampleBreakdownBetween(dayStart, dayEnd)
+        return usageSampleSummaryService
+                .findBetween(dayStart, dayEnd)
                 .stream()
-                .map(row -> {
-                    long visiblePlayers = row.getVisiblePlayers();
-                    long wynnExtrasUsers = row.getWynnExtrasUsers();
-                    double usagePercent = visiblePlayers == 0
-                            ? 0.0
-                            : (double) wynnExtrasUsers * 100.0 / visiblePlayers;
-                    return new UsageSampleBreakdown(
-                            row.getSampledAt(),
-                            visiblePlayers,
-                            wynnExtrasUsers,
-                            usagePercent);
-                })
+                .map(summary -> new UsageSampleBreakdown(
+                        summary.getSampledAt(),
+                        summary.getVisiblePlayers(),
+                        summary.getWynnExtrasUsers(),
+                        summary.getUsagePercent()))
                 .toList();
     }
 
@@ -152,9 +173,9 @@ public class WynncraftUsageStatsService {
             Instant nextDayStart = snapshotDate.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
             Instant dayEnd = snapshotInstant.isBefore(nextDayStart) ? snapshotInstant.plusNanos(1) : nextDayStart;
 
-            long uniquePlayers = playerSightingRepository.countUniquePlayersSeenInRange(dayStart, dayEnd);
-            long wynnExtrasUsers = playerSightingRepository.countDailyActiveWynnExtrasUsersSeenBetween(dayStart, dayEnd, snapshotDate);
-            long sampleCount = playerSightingRepository.countSamplesBetween(dayStart, dayEnd);
+            long uniquePlayers = sightingStore.countUniquePlayersBetween(dayStart, dayEnd);
+            long wynnExtrasUsers = sightingStore.countDailyActiveWynnExtrasUsersSeenBetween(dayStart, dayEnd, snapshotDate);
+            long sampleCount = sightingStore.countSamplesBetween(dayStart, dayEnd);
             UsageSampleStats sampleStats = buildSampleStats(buildSampleBreakdownUntil(snapshotDate, snapshotInstant));
 
             snapshot.setUniquePlayers(uniquePlayers);
@@ -173,10 +194,6 @@ public class WynncraftUsageStatsService {
         return snapshot;
     }
 
-    private static String normalizeUuid(String uuid) {
-        return uuid.replace("-", "").toLowerCase();
-    }
-
     public record CapturedOnlinePlayerSample(int visiblePlayers, int totalOnlinePlayers) {}
 
     public record UsageSampleBreakdown(
@@ -185,6 +202,8 @@ public class WynncraftUsageStatsService {
             long wynnExtrasUsers,
             double usagePercent) {}
 
+    public record UsageDayBreakdown(List<UsageSampleBreakdown> samples, UsageSampleStats stats) {}
+
     public record UsageSampleStats(
             long sampleCount,
             double averageUsagePercent,
@@ -0,0 +1,90 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact binary encoding of the active badge list (application/vnd.wynnextras.badges).
+ *
+ * Layout (big endian):
+ * <pre>
+ * byte    format version (1)
+ * byte    icon id count, then per icon:  byte length + UTF-8 id
+ * byte    color id count, then per color: byte length + UTF-8 id
+ * int     badge count, then per badge:
+ *         long, long  UUID (most / least significant 64 bits)
+ *         byte        icon ordinal into the icon table
+ *         byte        color ordinal into the color table
+ *         byte        username length + UTF-8 username
+ * </pre>
+ * The id tables come from {@link BadgeCatalog} and are sent with every payload so clients
+ * never need a hard-coded ordinal mapping.
+ */
+public class BadgeBinaryCodec {
+    public static final String CONTENT_TYPE = "application/vnd.wynnextras.badges";
+    private static final int FORMAT_VERSION = 1;
+
+    public record Badge(String uuid, String username, String iconId, String colorId) {}
+
+    public static byte[] encode(List<Badge> badges) {
+        badges = badges.stream().filter(badge -> isCompactUuid(badge.uuid())).toList();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + badges.size() * 36);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            writeStringTable(out, BadgeCatalog.BADGE_ICON_IDS);
+            writeStringTable(out, BadgeCatalog.BADGE_COLOR_IDS);
+
+            out.writeInt(badges.size());
+            for (Badge badge : badges) {
+                out.writeLong(Long.parseUnsignedLong(badge.uuid().substring(0, 16), 16));
+                out.writeLong(Long.parseUnsignedLong(badge.uuid().substring(16, 32), 16));
+                out.writeByte(BadgeCatalog.badgeIconOrdinal(badge.iconId()));
+                out.writeByte(BadgeCatalog.badgeColorOrdinal(badge.colorId()));
+                writeShortString(out, badge.username());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to encode badge payload", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to gzip payload", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean isCompactUuid(String uuid) {
+        if (uuid == null || uuid.length() != 32) {
+            return false;
+        }
+        for (int i = 0; i < 32; i++) {
+            if (Character.digit(uuid.charAt(i), 16) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeStringTable(DataOutputStream out, List<String> values) throws IOException {
+        out.writeByte(values.size());
+        for (String value : values) {
+            writeShortString(out, value);
+        }
+    }
+
+    private static void writeShortString(DataOutputStream out, String value) throws IOException {
+        byte[] encoded = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(encoded.length, 255);
+        out.writeByte(length);
+        out.write(encoded, 0, length);
+    }
+}
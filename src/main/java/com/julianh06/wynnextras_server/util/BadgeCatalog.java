@@ -0,0 +1,49 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Known badge icon and color ids for the WynnExtras user badge system.
+ * Unknown ids sent by clients fall back to the defaults.
+ *
+ * The list order defines the ordinals used by the binary badge encoding,
+ * so new ids must only ever be appended.
+ */
+public class BadgeCatalog {
+    public static final String DEFAULT_BADGE_ICON_ID = "skull";
+    public static final String DEFAULT_BADGE_COLOR_ID = "gold";
+    public static final List<String> BADGE_ICON_IDS = List.of(
+            "skull", "star", "radiant", "crown", "spark", "mythic", "tna", "notg", "nol", "twp", "tcc"
+    );
+    public static final List<String> BADGE_COLOR_IDS = List.of(
+            "gold", "white", "gray", "aqua", "purple", "green", "copper", "class", "pale_blue"
+    );
+    public static final Set<String> VALID_BADGE_ICON_IDS = Set.copyOf(BADGE_ICON_IDS);
+    public static final Set<String> VALID_BADGE_COLOR_IDS = Set.copyOf(BADGE_COLOR_IDS);
+
+    public static int badgeIconOrdinal(String badgeIconId) {
+        return BADGE_ICON_IDS.indexOf(normalizeBadgeIconId(badgeIconId));
+    }
+
+    public static int badgeColorOrdinal(String badgeColorId) {
+        return BADGE_COLOR_IDS.indexOf(normalizeBadgeColorId(badgeColorId));
+    }
+
+    public static String normalizeBadgeIconId(String badgeIconId) {
+        return normalizeCatalogId(badgeIconId, VALID_BADGE_ICON_IDS, DEFAULT_BADGE_ICON_ID);
+    }
+
+    public static String normalizeBadgeColorId(String badgeColorId) {
+        return normalizeCatalogId(badgeColorId, VALID_BADGE_COLOR_IDS, DEFAULT_BADGE_COLOR_ID);
+    }
+
+    private static String normalizeCatalogId(String value, Set<String> validIds, String defaultId) {
+        if (value == null) {
+            return defaultId;
+        }
+
+        String normalized = value.trim();
+        return validIds.contains(normalized) ? normalized : defaultId;
+    }
+}
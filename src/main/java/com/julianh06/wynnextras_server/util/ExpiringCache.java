@@ -0,0 +1,120 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded map whose entries carry an absolute expiry time.
+ *
+ * Expired entries are dropped by {@link #evictExpired()} in O(expired log n) using a queue
+ * ordered by expiry, so no full scan is needed. When the map is full the least recently
+ * used entry is evicted first. Reads never return expired entries.
+ */
+public class ExpiringCache<K, V> {
+    private final int maxSize;
+    private final LinkedHashMap<K, Entry<K, V>> entries;
+    private final PriorityQueue<Entry<K, V>> expiryQueue =
+            new PriorityQueue<>((a, b) -> Long.compare(a.expiresAt, b.expiresAt));
+
+    private final AtomicLong expiredEvictions = new AtomicLong();
+    private final AtomicLong lruEvictions = new AtomicLong();
+
+    private record Entry<K, V>(K key, V value, long expiresAt) {}
+
+    public ExpiringCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<K, V>> eldest) {
+                if (size() > ExpiringCache.this.maxSize) {
+                    lruEvictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized void put(K key, V value, long expiresAtMillis) {
+        Entry<K, V> entry = new Entry<>(key, value, expiresAtMillis);
+        entries.put(key, entry);
+        expiryQueue.add(entry);
+    }
+
+    /**
+     * Like {@link #put}, but never evicts a live entry to make room: a new key is only added
+     * if there is space once expired entries are dropped.
+     *
+     * @return false if the map is full of unexpired entries
+     */
+    public synchronized boolean tryPut(K key, V value, long expiresAtMillis) {
+        if (!entries.containsKey(key) && entries.size() >= maxSize) {
+            evictExpired();
+            if (entries.size() >= maxSize) {
+                return false;
+            }
+        }
+        put(key, value, expiresAtMillis);
+        return true;
+    }
+
+    /**
+     * @return the value, or null if absent or already expired
+     */
+    public synchronized V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            expiredEvictions.incrementAndGet();
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Drop every entry whose expiry has passed. Queue entries that were replaced,
+     * removed or LRU-evicted in the meantime are discarded without touching the map.
+     */
+    public synchronized int evictExpired() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        Entry<K, V> head;
+        while ((head = expiryQueue.peek()) != null && head.expiresAt <= now) {
+            expiryQueue.poll();
+            // remove(key, value) is not an access, so the LRU order of a replacement is kept;
+            // an equal replacement has the same expiry and is due as well
+            if (entries.remove(head.key, head)) {
+                evicted++;
+            }
+        }
+        // Stale queue entries from LRU evictions/overwrites can pile up under churn
+        if (expiryQueue.size() > maxSize * 2) {
+            expiryQueue.clear();
+            expiryQueue.addAll(entries.values());
+        }
+        expiredEvictions.addAndGet(evicted);
+        return evicted;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public Map<String, Object> getStats() {
+        return Map.of(
+                "size", size(),
+                "maxSize", maxSize,
+                "expiredEvictions", expiredEvictions.get(),
+                "lruEvictions", lruEvictions.get()
+        );
+    }
+}
@@ -0,0 +1,253 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Immutable compressed bitmap of non-negative int ids, laid out like a roaring bitmap: ids are
+ * grouped by their high 16 bits into containers, each either a sorted array of the low 16 bits
+ * (up to {@value #ARRAY_MAX} entries) or a 65536 bit bitmap.
+ *
+ * Serialized layout (big endian): byte format version (1), int container count, then per
+ * container: char key, char cardinality - 1, byte type (0 array, 1 bitmap), followed by the
+ * cardinality chars of an array container or the 1024 longs of a bitmap container.
+ */
+public final class IdBitmap {
+    public static final IdBitmap EMPTY = new IdBitmap(new char[0], new Object[0], new int[0]);
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final byte TYPE_ARRAY = 0;
+    private static final byte TYPE_BITMAP = 1;
+
+    // Sorted container keys (high 16 bits); containers are char[] (array) or long[] (bitmap)
+    private final char[] keys;
+    private final Object[] containers;
+    private final int[] cardinalities;
+
+    private IdBitmap(char[] keys, Object[] containers, int[] cardinalities) {
+        this.keys = keys;
+        this.containers = containers;
+        this.cardinalities = cardinalities;
+    }
+
+    /**
+     * Bitmap of the first {@code count} ids, which must be sorted ascending and distinct.
+     */
+    public static IdBitmap ofSorted(int[] ids, int count) {
+        Builder builder = new Builder(count / ARRAY_MAX + 1);
+        int start = 0;
+        while (start < count) {
+            char key = (char) (ids[start] >>> 16);
+            int end = start;
+            while (end < count && (ids[end] >>> 16) == key) end++;
+            int cardinality = end - start;
+            if (cardinality <= ARRAY_MAX) {
+                char[] array = new char[cardinality];
+                for (int i = 0; i < cardinality; i++) array[i] = (char) ids[start + i];
+                builder.add(key, array, cardinality);
+            } else {
+                long[] bitmap = new long[BITMAP_WORDS];
+                for (int i = start; i < end; i++) setBit(bitmap, (char) ids[i]);
+                builder.add(key, bitmap, cardinality);
+            }
+            start = end;
+        }
+        return builder.build();
+    }
+
+    public long cardinality() {
+        long total = 0;
+        for (int cardinality : cardinalities) total += cardinality;
+        return total;
+    }
+
+    public boolean contains(int id) {
+        int index = Arrays.binarySearch(keys, (char) (id >>> 16));
+        if (index < 0) return false;
+        Object container = containers[index];
+        if (container instanceof char[] array) {
+            return Arrays.binarySearch(array, (char) id) >= 0;
+        }
+        return testBit((long[]) container, (char) id);
+    }
+
+    public IdBitmap or(IdBitmap other) {
+        Builder builder = new Builder(keys.length + other.keys.length);
+        int i = 0, j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            if (j == other.keys.length || (i < keys.length && keys[i] < other.keys[j])) {
+                builder.add(keys[i], containers[i], cardinalities[i]);
+                i++;
+            } else if (i == keys.length || other.keys[j] < keys[i]) {
+                builder.add(other.keys[j], other.containers[j], other.cardinalities[j]);
+                j++;
+            } else {
+                orContainers(builder, keys[i], containers[i], other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return builder.build();
+    }
+
+    public long andCardinality(IdBitmap other) {
+        long total = 0;
+        int i = 0, j = 0;
+        while (i < keys.length && j < other.keys.length) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (other.keys[j] < keys[i]) {
+                j++;
+            } else {
+                total += andCardinality(containers[i], other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return total;
+    }
+
+    public byte[] toBytes() {
+        int size = 5;
+        for (int i = 0; i < keys.length; i++) {
+            size += 5 + (containers[i] instanceof char[] array ? array.length * 2 : BITMAP_WORDS * 8);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.putInt(keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            buffer.putChar(keys[i]);
+            buffer.putChar((char) (cardinalities[i] - 1));
+            if (containers[i] instanceof char[] array) {
+                buffer.put(TYPE_ARRAY);
+                for (char value : array) buffer.putChar(value);
+            } else {
+                buffer.put(TYPE_BITMAP);
+                for (long word : (long[]) containers[i]) buffer.putLong(word);
+            }
+        }
+        return buffer.array();
+    }
+
+    public static IdBitmap fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int version = buffer.get();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported bitmap format version " + version);
+        }
+        int count = buffer.getInt();
+        Builder builder = new Builder(count);
+        for (int i = 0; i < count; i++) {
+            char key = buffer.getChar();
+            int cardinality = buffer.getChar() + 1;
+            if (buffer.get() == TYPE_ARRAY) {
+                char[] array = new char[cardinality];
+                for (int k = 0; k < cardinality; k++) array[k] = buffer.getChar();
+                builder.add(key, array, cardinality);
+            } else {
+                long[] bitmap = new long[BITMAP_WORDS];
+                for (int k = 0; k < BITMAP_WORDS; k++) bitmap[k] = buffer.getLong();
+                builder.add(key, bitmap, cardinality);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void orContainers(Builder builder, char key, Object a, Object b) {
+        if (a instanceof char[] left && b instanceof char[] right) {
+            char[] merged = new char[left.length + right.length];
+            int i = 0, j = 0, k = 0;
+            while (i < left.length && j < right.length) {
+                if (left[i] < right[j]) merged[k++] = left[i++];
+                else if (right[j] < left[i]) merged[k++] = right[j++];
+                else { merged[k++] = left[i++]; j++; }
+            }
+            while (i < left.length) merged[k++] = left[i++];
+            while (j < right.length) merged[k++] = right[j++];
+            if (k <= ARRAY_MAX) {
+                builder.add(key, Arrays.copyOf(merged, k), k);
+            } else {
+                long[] bitmap = new long[BITMAP_WORDS];
+                for (int n = 0; n < k; n++) setBit(bitmap, merged[n]);
+                builder.add(key, bitmap, k);
+            }
+            return;
+        }
+
+        long[] bitmap = a instanceof long[] words ? words.clone() : ((long[]) b).clone();
+        Object rest = a instanceof long[] ? b : a;
+        if (rest instanceof char[] array) {
+            for (char value : array) setBit(bitmap, value);
+        } else {
+            long[] words = (long[]) rest;
+            for (int n = 0; n < BITMAP_WORDS; n++) bitmap[n] |= words[n];
+        }
+        int cardinality = 0;
+        for (long word : bitmap) cardinality += Long.bitCount(word);
+        builder.add(key, bitmap, cardinality);
+    }
+
+    private static long andCardinality(Object a, Object b) {
+        if (a instanceof char[] left && b instanceof char[] right) {
+            long count = 0;
+            int i = 0, j = 0;
+            while (i < left.length && j < right.length) {
+                if (left[i] < right[j]) i++;
+                else if (right[j] < left[i]) j++;
+                else { count++; i++; j++; }
+            }
+            return count;
+        }
+        if (a instanceof long[] left && b instanceof long[] right) {
+            long count = 0;
+            for (int n = 0; n < BITMAP_WORDS; n++) count += Long.bitCount(left[n] & right[n]);
+            return count;
+        }
+        char[] array = a instanceof char[] left ? left : (char[]) b;
+        long[] bitmap = a instanceof long[] left ? left : (long[]) b;
+        long count = 0;
+        for (char value : array) {
+            if (testBit(bitmap, value)) count++;
+        }
+        return count;
+    }
+
+    private static void setBit(long[] bitmap, char low) {
+        bitmap[low >>> 6] |= 1L << low;
+    }
+
+    private static boolean testBit(long[] bitmap, char low) {
+        return (bitmap[low >>> 6] & (1L << low)) != 0;
+    }
+
+    private static final class Builder {
+        private char[] keys;
+        private Object[] containers;
+        private int[] cardinalities;
+        private int size;
+
+        Builder(int capacity) {
+            keys = new char[Math.max(1, capacity)];
+            containers = new Object[keys.length];
+            cardinalities = new int[keys.length];
+        }
+
+        void add(char key, Object container, int cardinality) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                containers = Arrays.copyOf(containers, size * 2);
+                cardinalities = Arrays.copyOf(cardinalities, size * 2);
+            }
+            keys[size] = key;
+            containers[size] = container;
+            cardinalities[size] = cardinality;
+            size++;
+        }
+
+        IdBitmap build() {
+            return new IdBitmap(Arrays.copyOf(keys, size), Arrays.copyOf(containers, size), Arrays.copyOf(cardinalities, size));
+        }
+    }
+}
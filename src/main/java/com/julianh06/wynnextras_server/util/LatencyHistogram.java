@@ -0,0 +1,67 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with fixed millisecond buckets.
+ * Percentiles are estimated as the upper bound of the bucket they fall into.
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKET_UPPER_BOUNDS_MS = {
+            5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE
+    };
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_UPPER_BOUNDS_MS.length);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sumMs = new AtomicLong();
+    private final AtomicLong maxMs = new AtomicLong();
+
+    public void record(long durationMs) {
+        int bucket = 0;
+        while (durationMs > BUCKET_UPPER_BOUNDS_MS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        sumMs.addAndGet(durationMs);
+        maxMs.accumulateAndGet(durationMs, Math::max);
+    }
+
+    public Map<String, Object> getStats() {
+        long count = total.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", count);
+        stats.put("meanMs", count == 0 ? 0 : sumMs.get() / count);
+        stats.put("p50Ms", percentile(0.50));
+        stats.put("p90Ms", percentile(0.90));
+        stats.put("p99Ms", percentile(0.99));
+        stats.put("maxMs", maxMs.get());
+
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MS.length; i++) {
+            String label = BUCKET_UPPER_BOUNDS_MS[i] == Long.MAX_VALUE ? "+Inf" : "le" + BUCKET_UPPER_BOUNDS_MS[i];
+            buckets.put(label, counts.get(i));
+        }
+        stats.put("buckets", buckets);
+        return stats;
+    }
+
+    private long percentile(double quantile) {
+        long count = total.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_UPPER_BOUNDS_MS.length; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return BUCKET_UPPER_BOUNDS_MS[i] == Long.MAX_VALUE ? maxMs.get() : BUCKET_UPPER_BOUNDS_MS[i];
+            }
+        }
+        return maxMs.get();
+    }
+}
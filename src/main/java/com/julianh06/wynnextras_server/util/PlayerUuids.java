@@ -0,0 +1,193 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Sorted, duplicate free set of player UUIDs, each stored as two longs (most and least
+ * significant half) in one flat array, so large samples cost 16 bytes per player and no
+ * String or UUID objects.
+ */
+public final class PlayerUuids {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // msb of entry i at 2 * i, lsb at 2 * i + 1
+    private final long[] halves;
+    private final int size;
+
+    private PlayerUuids(long[] halves, int size) {
+        this.halves = halves;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long msb(int index) {
+        return halves[2 * index];
+    }
+
+    public long lsb(int index) {
+        return halves[2 * index + 1];
+    }
+
+    /**
+     * The UUID at {@code index} as 32 lowercase hex chars without dashes.
+     */
+    public String toHex(int index) {
+        char[] chars = new char[32];
+        writeHex(msb(index), chars, 0);
+        writeHex(lsb(index), chars, 16);
+        return new String(chars);
+    }
+
+    public Set<String> toHexStrings() {
+        Set<String> uuids = new LinkedHashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            uuids.add(toHex(i));
+        }
+        return uuids;
+    }
+
+    public static boolean parse(String uuid, long[] halves) {
+        return uuid != null && parse(uuid.toCharArray(), 0, uuid.length(), halves);
+    }
+
+    /**
+     * Parse 32 hex chars, with or without the four dashes of the canonical form and in either
+     * case, into {@code halves[0]} (msb) and {@code halves[1]} (lsb).
+     *
+     * @return false if the chars are not a UUID
+     */
+    public static boolean parse(char[] chars, int offset, int length, long[] halves) {
+        boolean dashed;
+        if (length == 32) {
+            dashed = false;
+        } else if (length == 36) {
+            dashed = true;
+        } else {
+            return false;
+        }
+
+        long msb = 0;
+        long lsb = 0;
+        int digits = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[offset + i];
+            if (dashed && (i == 8 || i == 13 || i == 18 || i == 23)) {
+                if (c != '-') return false;
+                continue;
+            }
+            int value = hexValue(c);
+            if (value < 0) return false;
+            if (digits < 16) {
+                msb = (msb << 4) | value;
+            } else {
+                lsb = (lsb << 4) | value;
+            }
+            digits++;
+        }
+        halves[0] = msb;
+        halves[1] = lsb;
+        return true;
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') return c - '0';
+        if (c >= 'a' && c <= 'f') return c - 'a' + 10;
+        if (c >= 'A' && c <= 'F') return c - 'A' + 10;
+        return -1;
+    }
+
+    private static void writeHex(long value, char[] chars, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
+    }
+
+    /**
+     * Collects UUIDs from text, see {@link #parse(char[], int, int, long[])} for the accepted forms.
+     */
+    public static final class Builder {
+        private long[] halves = new long[2 * 1024];
+        private int size;
+
+        private final long[] parsed = new long[2];
+
+        public boolean add(String uuid) {
+            return uuid != null && add(uuid.toCharArray(), 0, uuid.length());
+        }
+
+        /**
+         * @return false if the chars are not a UUID
+         */
+        public boolean add(char[] chars, int offset, int length) {
+            if (!parse(chars, offset, length, parsed)) {
+                return false;
+            }
+            if (2 * size == halves.length) {
+                halves = Arrays.copyOf(halves, halves.length * 2);
+            }
+            halves[2 * size] = parsed[0];
+            halves[2 * size + 1] = parsed[1];
+            size++;
+            return true;
+        }
+
+        public PlayerUuids build() {
+            long[] sorted = sortPairs(halves, size);
+            // Drop duplicates, which are now adjacent
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique > 0 && sorted[2 * i] == sorted[2 * unique - 2] && sorted[2 * i + 1] == sorted[2 * unique - 1]) {
+                    continue;
+                }
+                sorted[2 * unique] = sorted[2 * i];
+                sorted[2 * unique + 1] = sorted[2 * i + 1];
+                unique++;
+            }
+            return new PlayerUuids(Arrays.copyOf(sorted, 2 * unique), unique);
+        }
+
+        /**
+         * Bottom-up merge sort of the first {@code count} (msb, lsb) pairs.
+         */
+        private static long[] sortPairs(long[] pairs, int count) {
+            long[] from = Arrays.copyOf(pairs, 2 * count);
+            long[] to = new long[2 * count];
+            for (int width = 1; width < count; width *= 2) {
+                for (int left = 0; left < count; left += 2 * width) {
+                    int mid = Math.min(left + width, count);
+                    int right = Math.min(left + 2 * width, count);
+                    int i = left, j = mid, k = left;
+                    while (i < mid && j < right) {
+                        if (comparePair(from, i, j) <= 0) {
+                            copyPair(from, i++, to, k++);
+                        } else {
+                            copyPair(from, j++, to, k++);
+                        }
+                    }
+                    while (i < mid) copyPair(from, i++, to, k++);
+                    while (j < right) copyPair(from, j++, to, k++);
+                }
+                long[] swap = from;
+                from = to;
+                to = swap;
+            }
+            return from;
+        }
+
+        private static int comparePair(long[] pairs, int a, int b) {
+            int cmp = Long.compare(pairs[2 * a], pairs[2 * b]);
+            return cmp != 0 ? cmp : Long.compare(pairs[2 * a + 1], pairs[2 * b + 1]);
+        }
+
+        private static void copyPair(long[] from, int index, long[] to, int toIndex) {
+            to[2 * toIndex] = from[2 * index];
+            to[2 * toIndex + 1] = from[2 * index + 1];
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token bucket rate limiter: holds up to {@code capacity} tokens, refilled continuously at
+ * {@code tokensPerSecond}. Each call takes one token, waiting for the next refill if empty.
+ */
+public class TokenBucket {
+    private final double capacity;
+    private final double tokensPerNano;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private long acquired;
+    private long timedOut;
+    private long waitedNanos;
+
+    public TokenBucket(int capacity, double tokensPerSecond) {
+        if (capacity < 1 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket needs a capacity of at least 1 and a positive refill rate");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = tokensPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take a token, waiting at most {@code timeout} for one to become available.
+     *
+     * @return false if no token became available in time
+     */
+    public boolean tryAcquire(Duration timeout) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + timeout.toNanos();
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                refill(now);
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    acquired++;
+                    waitedNanos += now - start;
+                    return true;
+                }
+                if (now >= deadline) {
+                    timedOut++;
+                    return false;
+                }
+                waitNanos = Math.min((long) Math.ceil((1 - tokens) / tokensPerNano), deadline - now);
+            }
+            Thread.sleep(waitNanos / 1_000_000, (int) (waitNanos % 1_000_000));
+        }
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        refill(System.nanoTime());
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("availableTokens", (long) tokens);
+        stats.put("acquired", acquired);
+        stats.put("timedOut", timedOut);
+        stats.put("totalWaitMs", waitedNanos / 1_000_000);
+        return stats;
+    }
+}
@@ -0,0 +1,108 @@
+package com.julianh06.wynnextras_server.util;
+
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Bloom filter over 32-char hex UUIDs, used to let clients test "is this player a WynnExtras user"
+ * locally before asking the server for the exact badge.
+ *
+ * Hashing (clients must implement the same):
+ * <pre>
+ * msb, lsb = UUID as two unsigned 64 bit halves
+ * h1 = fmix64(msb)
+ * h2 = fmix64(lsb) | 1
+ * bit i (0 &lt;= i &lt; k) = unsignedRemainder(h1 + i * h2, bitCount)
+ * </pre>
+ * where fmix64 is the MurmurHash3 64 bit finalizer.
+ *
+ * Serialized layout (big endian): byte format version (1), byte hash count k,
+ * int bit count, int entry count, then ceil(bitCount / 64) longs of bit words.
+ */
+public class UuidBloomFilter {
+    public static final String CONTENT_TYPE = "application/vnd.wynnextras.bloom";
+    private static final int FORMAT_VERSION = 1;
+    private static final int MIN_BITS = 64;
+
+    private final long[] words;
+    private final int bitCount;
+    private final int hashCount;
+    private final int entryCount;
+
+    private UuidBloomFilter(int bitCount, int hashCount, int entryCount) {
+        this.bitCount = bitCount;
+        this.hashCount = hashCount;
+        this.entryCount = entryCount;
+        this.words = new long[(bitCount + 63) / 64];
+    }
+
+    /**
+     * Build a filter sized for the given UUIDs and target false positive rate.
+     * Entries that are not 32-char hex UUIDs are skipped.
+     */
+    public static UuidBloomFilter build(Collection<String> uuids, double falsePositiveRate) {
+        int n = Math.max(1, uuids.size());
+        double ln2 = Math.log(2);
+        int bits = (int) Math.max(MIN_BITS, Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2)));
+        int hashes = (int) Math.max(1, Math.min(16, Math.round((double) bits / n * ln2)));
+
+        UuidBloomFilter filter = new UuidBloomFilter(bits, hashes, uuids.size());
+        for (String uuid : uuids) {
+            if (uuid != null && uuid.length() == 32) {
+                try {
+                    filter.add(Long.parseUnsignedLong(uuid.substring(0, 16), 16),
+                            Long.parseUnsignedLong(uuid.substring(16, 32), 16));
+                } catch (NumberFormatException ignored) {
+                    // not a hex UUID, cannot be matched by clients anyway
+                }
+            }
+        }
+        return filter;
+    }
+
+    public boolean mightContain(long msb, long lsb) {
+        long h1 = fmix64(msb);
+        long h2 = fmix64(lsb) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(10 + words.length * 8);
+        buffer.put((byte) FORMAT_VERSION);
+        buffer.put((byte) hashCount);
+        buffer.putInt(bitCount);
+        buffer.putInt(entryCount);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+        return buffer.array();
+    }
+
+    public int getBitCount() { return bitCount; }
+    public int getHashCount() { return hashCount; }
+    public int getEntryCount() { return entryCount; }
+
+    private void add(long msb, long lsb) {
+        long h1 = fmix64(msb);
+        long h2 = fmix64(lsb) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = (int) Long.remainderUnsigned(h1 + i * h2, bitCount);
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,87 @@
+package com.julianh06.wynnextras_server;
+
+import com.julianh06.wynnextras_server.util.PlayerUuids;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A 20k player body of GET /v3/player?identifier=uuid, in the shape the Wynncraft API returns
+ * it: {"total": n, "players": {"&lt;dashed uuid&gt;": "&lt;server&gt;", ...}}.
+ *
+ * The committed file is generated with a fixed seed by {@link #main}, so it can be rebuilt
+ * byte for byte.
+ */
+public final class OnlinePlayersFixture {
+    public static final String RESOURCE = "/fixtures/online-players-20k.json.gz";
+    public static final int PLAYERS = 20_000;
+    private static final long SEED = 20_000L;
+
+    private OnlinePlayersFixture() {}
+
+    public static byte[] load() {
+        try (InputStream in = OnlinePlayersFixture.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing test resource " + RESOURCE);
+            }
+            try (InputStream gzip = new GZIPInputStream(in)) {
+                return gzip.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The fixture's players as the online player sample parses them.
+     */
+    public static PlayerUuids players() {
+        try {
+            return WynncraftService.parseOnlinePlayers(load()).players();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static byte[] generate() {
+        Random random = new Random(SEED);
+        StringBuilder json = new StringBuilder(PLAYERS * 48);
+        json.append("{\"total\":").append(PLAYERS).append(",\"players\":{");
+        for (int i = 0; i < PLAYERS; i++) {
+            UUID uuid = new UUID(
+                    (random.nextLong() & ~0xF000L) | 0x4000L,
+                    (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+            String server = switch (random.nextInt(5)) {
+                case 0, 1 -> "NA" + (1 + random.nextInt(40));
+                case 2, 3 -> "EU" + (1 + random.nextInt(40));
+                default -> "AS" + (1 + random.nextInt(15));
+            };
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('"').append(uuid).append("\":\"").append(server).append('"');
+        }
+        json.append("}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rewrite the fixture: {@code main src/test/resources/fixtures/online-players-20k.json.gz}.
+     */
+    public static void main(String[] args) throws IOException {
+        Path path = Path.of(args[0]);
+        Files.createDirectories(path.getParent());
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            out.write(generate());
+        }
+    }
+}
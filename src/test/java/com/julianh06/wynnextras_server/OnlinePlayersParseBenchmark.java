@@ -0,0 +1,75 @@
+package com.julianh06.wynnextras_server;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing the 20k player {@link OnlinePlayersFixture}: the streaming parser in
+ * {@link WynncraftService#parseOnlinePlayers} against the JsonNode tree it replaced.
+ *
+ * Run with {@code mvn -B test-compile exec:exec -Pbenchmark -Dbenchmark.args=OnlinePlayersParseBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgs = "-Xmx1g")
+public class OnlinePlayersParseBenchmark {
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        body = OnlinePlayersFixture.load();
+        int streamed = WynncraftService.parseOnlinePlayers(body).players().size();
+        int tree = parseTree(body).size();
+        if (streamed != OnlinePlayersFixture.PLAYERS || tree != OnlinePlayersFixture.PLAYERS) {
+            throw new IllegalStateException("Parsed " + streamed + " and " + tree + " players, expected "
+                    + OnlinePlayersFixture.PLAYERS);
+        }
+    }
+
+    @Benchmark
+    public WynncraftService.OnlinePlayerSample streaming() throws IOException {
+        return WynncraftService.parseOnlinePlayers(body);
+    }
+
+    @Benchmark
+    public Set<String> tree() throws IOException {
+        return parseTree(body);
+    }
+
+    /**
+     * The parse before the streaming rewrite.
+     */
+    private static Set<String> parseTree(byte[] body) throws IOException {
+        JsonNode players = mapper.readTree(body).path("players");
+        Set<String> uuids = new LinkedHashSet<>();
+        Iterator<String> fieldNames = players.fieldNames();
+        while (fieldNames.hasNext()) {
+            String uuid = fieldNames.next().replace("-", "").toLowerCase();
+            if (uuid.matches("[0-9a-f]{32}")) {
+                uuids.add(uuid);
+            }
+        }
+        return uuids;
+    }
+}
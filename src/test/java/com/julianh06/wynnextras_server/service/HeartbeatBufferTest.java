@@ -0,0 +1,130 @@
+package com.julianh06.wynnextras_server.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class HeartbeatBufferTest {
+    private static final Instant NOW = Instant.parse("2026-10-17T12:00:00Z");
+
+    @Test
+    void badEntryDoesNotHoldBackTheRest() {
+        RecordingWriter writer = new RecordingWriter(entry -> entry.username().length() > 16);
+        HeartbeatBuffer buffer = new HeartbeatBuffer(writer);
+        for (int i = 0; i < 100; i++) {
+            buffer.enqueue("uuid" + i, "player" + i, "1.0", null, null, NOW);
+        }
+        buffer.enqueue("bad", "a_username_that_is_far_too_long", "1.0", null, null, NOW);
+
+        buffer.flush();
+        assertEquals(100, writer.written.size());
+        assertEquals(1, buffer.getStats().get("pending"));
+
+        // Dropped after the third failed flush, the buffer is empty again
+        buffer.flush();
+        assertEquals(1, buffer.getStats().get("pending"));
+        buffer.flush();
+        assertEquals(0, buffer.getStats().get("pending"));
+        assertEquals(1L, buffer.getStats().get("droppedFailing"));
+        assertEquals(100L, buffer.getStats().get("flushedEntries"));
+        assertFalse(writer.written.contains("bad"));
+    }
+
+    @Test
+    void laterHeartbeatsDoNotResetTheFailureCount() {
+        RecordingWriter writer = new RecordingWriter(entry -> entry.uuid().equals("bad"));
+        HeartbeatBuffer buffer = new HeartbeatBuffer(writer);
+        buffer.enqueue("bad", "player", "1.0", null, null, NOW);
+        buffer.flush();
+        buffer.flush();
+        // A later heartbeat of the same key merges into the failing entry without resetting its count
+        buffer.enqueue("bad", "player", "1.0", null, null, NOW.plusSeconds(60));
+        buffer.flush();
+        assertEquals(0, buffer.getStats().get("pending"));
+        assertEquals(1L, buffer.getStats().get("droppedFailing"));
+    }
+
+    @Test
+    void unreachableDatabaseRequeuesTheWholeBatch() {
+        RecordingWriter writer = new RecordingWriter(entry -> false);
+        writer.unreachable = true;
+        HeartbeatBuffer buffer = new HeartbeatBuffer(writer);
+        for (int i = 0; i < 10; i++) {
+            buffer.enqueue("uuid" + i, "player" + i, "1.0", null, null, NOW);
+        }
+
+        for (int attempt = 0; attempt < 5; attempt++) {
+            buffer.flush();
+        }
+        // One write per flush, nothing split or dropped
+        assertEquals(5, writer.calls);
+        assertEquals(10, buffer.getStats().get("pending"));
+        assertEquals(0L, buffer.getStats().get("droppedFailing"));
+
+        writer.unreachable = false;
+        buffer.flush();
+        assertEquals(10, writer.written.size());
+        assertEquals(0, buffer.getStats().get("pending"));
+    }
+
+    @Test
+    void requeueNeverExceedsCapacity() {
+        RecordingWriter writer = new RecordingWriter(entry -> false);
+        writer.unreachable = true;
+        HeartbeatBuffer buffer = new HeartbeatBuffer(writer);
+        for (int i = 0; i < 10; i++) {
+            buffer.enqueue("uuid" + i, "player" + i, "1.0", null, null, NOW);
+        }
+        // New heartbeats fill the buffer while the failing flush runs
+        int capacity = (int) buffer.getStats().get("capacity");
+        writer.duringWrite = () -> {
+            for (int i = 0; i < capacity; i++) {
+                buffer.enqueue("other" + i, "other" + i, "1.0", null, null, NOW);
+            }
+        };
+
+        buffer.flush();
+        assertEquals(capacity, buffer.getStats().get("pending"));
+        assertEquals(10L, buffer.getStats().get("droppedOverCapacity"));
+    }
+
+    private static class RecordingWriter extends HeartbeatBatchWriter {
+        private final Predicate<Entry> rejects;
+        private final Set<String> written = new HashSet<>();
+        private boolean unreachable;
+        private Runnable duringWrite = () -> {};
+        private int calls;
+
+        RecordingWriter(Predicate<Entry> rejects) {
+            super(null, null, null);
+            this.rejects = rejects;
+        }
+
+        @Override
+        public void write(List<Entry> entries) {
+            calls++;
+            duringWrite.run();
+            if (unreachable) {
+                throw new CannotCreateTransactionException("Connection refused");
+            }
+            List<String> uuids = new ArrayList<>();
+            for (Entry entry : entries) {
+                if (rejects.test(entry)) {
+                    throw new DataIntegrityViolationException("Value too long for " + entry.uuid());
+                }
+                uuids.add(entry.uuid());
+            }
+            written.addAll(uuids);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.julianh06.wynnextras_server.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlayerIdTableTest {
+    @Test
+    void matchesHashMapThroughGrowth() {
+        Random random = new Random(23);
+        BitmapSightingStore.PlayerIdTable table = new BitmapSightingStore.PlayerIdTable();
+        Map<UUID, Integer> expected = new HashMap<>();
+
+        // Id 0 and the all-zero key must not be mistaken for free slots
+        table.put(0, 0, 0);
+        expected.put(new UUID(0, 0), 0);
+        for (int id = 1; id < 100_000; id++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            table.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), id);
+            expected.put(uuid, id);
+        }
+
+        assertEquals(expected.size(), table.size());
+        for (Map.Entry<UUID, Integer> entry : expected.entrySet()) {
+            UUID uuid = entry.getKey();
+            assertEquals(entry.getValue(), table.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()));
+        }
+        for (int i = 0; i < 10_000; i++) {
+            UUID absent = new UUID(random.nextLong(), random.nextLong());
+            if (!expected.containsKey(absent)) {
+                assertEquals(-1, table.get(absent.getMostSignificantBits(), absent.getLeastSignificantBits()));
+            }
+        }
+    }
+
+    @Test
+    void putOfAnExistingKeyReplacesItsId() {
+        BitmapSightingStore.PlayerIdTable table = new BitmapSightingStore.PlayerIdTable();
+        table.put(1, 2, 5);
+        table.put(1, 2, 7);
+        assertEquals(1, table.size());
+        assertEquals(7, table.get(1, 2));
+        assertEquals(-1, table.get(2, 1));
+    }
+
+    @Test
+    void collidingKeysStayDistinct() {
+        // Same lsb, msb differing only in high bits
+        BitmapSightingStore.PlayerIdTable table = new BitmapSightingStore.PlayerIdTable();
+        for (int i = 0; i < 5000; i++) {
+            table.put((long) i << 40, 42, i);
+        }
+        assertEquals(5000, table.size());
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, table.get((long) i << 40, 42));
+        }
+    }
+}
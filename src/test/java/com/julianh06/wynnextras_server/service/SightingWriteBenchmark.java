@@ -0,0 +1,138 @@
+package com.julianh06.wynnextras_server.service;
+
+import com.julianh06.wynnextras_server.OnlinePlayersFixture;
+import com.julianh06.wynnextras_server.entity.WynncraftPlayerSighting;
+import com.julianh06.wynnextras_server.repository.WynncraftPlayerSightingRepository;
+import com.julianh06.wynnextras_server.util.PlayerUuids;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.data.jpa.repository.support.JpaRepositoryFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing one 20k player sample of the {@link OnlinePlayersFixture}: {@link SightingBatchWriter}
+ * against the saveAll of IDENTITY entities it replaced, with the application's Hibernate batch
+ * settings. Runs on an in-memory H2 database; the table is emptied before every write so each one
+ * starts from the same state.
+ *
+ * Run with {@code mvn -B test-compile exec:exec -Pbenchmark -Dbenchmark.args=SightingWriteBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(value = 2, jvmArgs = "-Xmx2g")
+public class SightingWriteBenchmark {
+    private HikariDataSource dataSource;
+    private LocalContainerEntityManagerFactoryBean entityManagerFactory;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private WynncraftPlayerSightingRepository repository;
+    private SightingBatchWriter batchWriter;
+    private PlayerUuids players;
+    private Instant sampledAt;
+
+    @Setup
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:sighting_write_benchmark;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+        dataSource.setPassword("");
+
+        entityManagerFactory = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactory.setDataSource(dataSource);
+        entityManagerFactory.setPackagesToScan("com.julianh06.wynnextras_server.entity");
+        entityManagerFactory.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        // Spring Boot's naming strategies and the batch settings of application.properties
+        entityManagerFactory.setJpaPropertyMap(Map.of(
+                "hibernate.physical_naming_strategy", CamelCaseToUnderscoresNamingStrategy.class.getName(),
+                "hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName(),
+                "hibernate.hbm2ddl.auto", "create",
+                "hibernate.jdbc.batch_size", "100",
+                "hibernate.order_inserts", "true",
+                "hibernate.order_updates", "true"));
+        entityManagerFactory.afterPropertiesSet();
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new JpaTransactionManager(entityManagerFactory.getObject()));
+        repository = new JpaRepositoryFactory(SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory.getObject()))
+                .getRepository(WynncraftPlayerSightingRepository.class);
+        batchWriter = new SightingBatchWriter(jdbcTemplate);
+        players = OnlinePlayersFixture.players();
+        sampledAt = Instant.parse("2026-10-17T00:00:00Z");
+
+        // Both paths must leave the same rows behind
+        long batchRows = writeAndCount(this::batchWriter);
+        long saveAllRows = writeAndCount(this::saveAll);
+        if (batchRows != players.size() || saveAllRows != players.size()) {
+            throw new IllegalStateException("Wrote " + batchRows + " and " + saveAllRows + " rows, expected "
+                    + players.size());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTable() {
+        jdbcTemplate.execute("TRUNCATE TABLE wynncraft_player_sighting");
+        sampledAt = sampledAt.plusSeconds(60);
+    }
+
+    @TearDown
+    public void tearDown() {
+        entityManagerFactory.destroy();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void batchWriter() {
+        transactionTemplate.executeWithoutResult(status -> batchWriter.write(sampledAt, players));
+    }
+
+    /**
+     * The write before the batch writer.
+     */
+    @Benchmark
+    public void saveAll() {
+        transactionTemplate.executeWithoutResult(status -> {
+            List<WynncraftPlayerSighting> sightings = new ArrayList<>(players.size());
+            for (int i = 0; i < players.size(); i++) {
+                sightings.add(new WynncraftPlayerSighting(players.toHex(i), sampledAt));
+            }
+            repository.saveAll(sightings);
+        });
+    }
+
+    private long writeAndCount(Runnable write) {
+        emptyTable();
+        write.run();
+        Long rows = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM wynncraft_player_sighting WHERE sampled_at = ?", Long.class,
+                sampledAt.atOffset(ZoneOffset.UTC));
+        return rows == null ? 0 : rows;
+    }
+}
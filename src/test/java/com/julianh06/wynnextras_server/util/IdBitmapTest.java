@@ -0,0 +1,161 @@
+package com.julianh06.wynnextras_server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdBitmapTest {
+    // Ids spread over four containers (high 16 bits 0-3)
+    private static final int ID_RANGE = 4 << 16;
+
+    @Test
+    void emptyBitmap() {
+        assertEquals(0, IdBitmap.EMPTY.cardinality());
+        assertEquals(0, IdBitmap.EMPTY.andCardinality(IdBitmap.EMPTY));
+        assertEquals(0, IdBitmap.EMPTY.or(IdBitmap.EMPTY).cardinality());
+        assertEquals(0, IdBitmap.fromBytes(IdBitmap.EMPTY.toBytes()).cardinality());
+        assertFalse(IdBitmap.EMPTY.contains(0));
+    }
+
+    @Test
+    void matchesBitSetAcrossDensities() {
+        Random random = new Random(21);
+        // Per container: well below, at, just above and far above the array container limit
+        int[] counts = {10, 4000, 4096, 4097, 20_000, 60_000};
+        for (int leftCount : counts) {
+            for (int rightCount : counts) {
+                BitSet left = randomIds(random, leftCount);
+                BitSet right = randomIds(random, rightCount);
+                assertMatches(left, right);
+            }
+        }
+    }
+
+    @Test
+    void containerAtExactlyTheArrayLimit() {
+        BitSet ids = new BitSet();
+        ids.set(0, 4096);
+        assertMatches(ids, new BitSet());
+
+        ids.set(4096);
+        assertMatches(ids, new BitSet());
+    }
+
+    @Test
+    void orOfTwoArrayContainersCrossingTheLimit() {
+        // 3000 + 3000 disjoint ids in the same container, 6000 once merged
+        BitSet left = new BitSet();
+        BitSet right = new BitSet();
+        for (int i = 0; i < 6000; i++) {
+            (i % 2 == 0 ? left : right).set(i * 3);
+        }
+        assertMatches(left, right);
+
+        // Overlapping halves: the union is exactly 4096
+        left.clear();
+        right.clear();
+        left.set(0, 3000);
+        right.set(1096, 4096);
+        assertMatches(left, right);
+    }
+
+    @Test
+    void idsInHighContainers() {
+        BitSet ids = new BitSet();
+        ids.set(0);
+        ids.set(65_535);
+        ids.set(65_536);
+        ids.set(1 << 20);
+        ids.set((1 << 20) + 5000);
+        assertMatches(ids, ids);
+
+        int[] sorted = ids.stream().toArray();
+        IdBitmap bitmap = IdBitmap.ofSorted(sorted, sorted.length);
+        assertTrue(bitmap.contains(1 << 20));
+        assertFalse(bitmap.contains((1 << 20) + 1));
+        assertFalse(bitmap.contains(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void ofSortedUsesOnlyTheFirstCountIds() {
+        int[] ids = {1, 5, 9, 100, 200};
+        IdBitmap bitmap = IdBitmap.ofSorted(ids, 3);
+        assertEquals(3, bitmap.cardinality());
+        assertTrue(bitmap.contains(9));
+        assertFalse(bitmap.contains(100));
+    }
+
+    @Test
+    void rejectsUnknownFormatVersion() {
+        byte[] bytes = IdBitmap.EMPTY.toBytes();
+        bytes[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> IdBitmap.fromBytes(bytes));
+    }
+
+    private static void assertMatches(BitSet left, BitSet right) {
+        IdBitmap leftBitmap = bitmapOf(left);
+        IdBitmap rightBitmap = bitmapOf(right);
+
+        assertEquals(left.cardinality(), leftBitmap.cardinality());
+        assertEquals(right.cardinality(), rightBitmap.cardinality());
+
+        BitSet union = (BitSet) left.clone();
+        union.or(right);
+        BitSet intersection = (BitSet) left.clone();
+        intersection.and(right);
+
+        IdBitmap unionBitmap = leftBitmap.or(rightBitmap);
+        assertEquals(union.cardinality(), unionBitmap.cardinality());
+        assertEquals(union.cardinality(), rightBitmap.or(leftBitmap).cardinality());
+        assertEquals(intersection.cardinality(), leftBitmap.andCardinality(rightBitmap));
+        assertEquals(intersection.cardinality(), rightBitmap.andCardinality(leftBitmap));
+        assertSameIds(union, unionBitmap);
+
+        IdBitmap roundTripped = IdBitmap.fromBytes(unionBitmap.toBytes());
+        assertEquals(union.cardinality(), roundTripped.cardinality());
+        assertSameIds(union, roundTripped);
+        assertEquals(intersection.cardinality(),
+                IdBitmap.fromBytes(leftBitmap.toBytes()).andCardinality(IdBitmap.fromBytes(rightBitmap.toBytes())));
+    }
+
+    private static void assertSameIds(BitSet expected, IdBitmap actual) {
+        int limit = Math.max(ID_RANGE, expected.length() + 1);
+        for (int id = 0; id < limit; id++) {
+            if (expected.get(id) != actual.contains(id)) {
+                throw new AssertionError("Mismatch at id " + id + ", expected " + expected.get(id));
+            }
+        }
+    }
+
+    private static IdBitmap bitmapOf(BitSet ids) {
+        int[] sorted = ids.stream().toArray();
+        return IdBitmap.ofSorted(sorted, sorted.length);
+    }
+
+    /**
+     * {@code perContainer} random ids in each of the four containers.
+     */
+    private static BitSet randomIds(Random random, int perContainer) {
+        BitSet ids = new BitSet(ID_RANGE);
+        for (int container = 0; container < 4; container++) {
+            BitSet low = new BitSet(65_536);
+            int count = 0;
+            while (count < perContainer) {
+                int value = random.nextInt(65_536);
+                if (!low.get(value)) {
+                    low.set(value);
+                    count++;
+                }
+            }
+            int base = container << 16;
+            low.stream().forEach(value -> ids.set(base + value));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,132 @@
+package com.julianh06.wynnextras_server.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerUuidsTest {
+    @Test
+    void parsesPlainAndDashedInEitherCase() {
+        UUID uuid = UUID.fromString("f3a1c2d4-0b5e-4c6f-9a7b-8c9d0e1f2a3b");
+        long[] expected = {uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()};
+
+        for (String text : List.of(
+                "f3a1c2d4-0b5e-4c6f-9a7b-8c9d0e1f2a3b",
+                "F3A1C2D4-0B5E-4C6F-9A7B-8C9D0E1F2A3B",
+                "f3a1c2d40b5e4c6f9a7b8c9d0e1f2a3b",
+                "F3a1C2d40B5e4C6f9A7b8C9d0E1f2A3b")) {
+            long[] halves = new long[2];
+            assertTrue(PlayerUuids.parse(text, halves), text);
+            assertArrayEquals(expected, halves, text);
+        }
+    }
+
+    @Test
+    void parsesFromAnOffsetInACharBuffer() {
+        char[] buffer = "xx\"0123456789abcdef0123456789abcdef\"yy".toCharArray();
+        long[] halves = new long[2];
+        assertTrue(PlayerUuids.parse(buffer, 3, 32, halves));
+        assertEquals(0x0123456789abcdefL, halves[0]);
+        assertEquals(0x0123456789abcdefL, halves[1]);
+    }
+
+    @Test
+    void rejectsMalformedUuids() {
+        long[] halves = new long[2];
+        assertFalse(PlayerUuids.parse((String) null, halves));
+        assertFalse(PlayerUuids.parse("", halves));
+        assertFalse(PlayerUuids.parse("f3a1c2d40b5e4c6f9a7b8c9d0e1f2a3", halves));
+        assertFalse(PlayerUuids.parse("f3a1c2d40b5e4c6f9a7b8c9d0e1f2a3b0", halves));
+        assertFalse(PlayerUuids.parse("g3a1c2d40b5e4c6f9a7b8c9d0e1f2a3b", halves));
+        // 36 chars with a dash out of place
+        assertFalse(PlayerUuids.parse("f3a1c2d40-b5e-4c6f-9a7b-8c9d0e1f2a3b", halves));
+        assertFalse(PlayerUuids.parse("f3a1c2d4-0b5e-4c6f-9a7b-8c9d0e1f2a3-", halves));
+    }
+
+    @Test
+    void hexRoundTrip() {
+        Random random = new Random(20);
+        for (int i = 0; i < 1000; i++) {
+            UUID uuid = new UUID(random.nextLong(), random.nextLong());
+            String hex = uuid.toString().replace("-", "");
+            PlayerUuids.Builder builder = new PlayerUuids.Builder();
+            assertTrue(builder.add(uuid.toString()));
+            PlayerUuids players = builder.build();
+            assertEquals(1, players.size());
+            assertEquals(uuid.getMostSignificantBits(), players.msb(0));
+            assertEquals(uuid.getLeastSignificantBits(), players.lsb(0));
+            assertEquals(hex, players.toHex(0));
+        }
+    }
+
+    @Test
+    void builderSortsAndDropsDuplicates() {
+        Random random = new Random(22);
+        List<UUID> distinct = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            distinct.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+        // Same msb, different lsb (incl. negative halves) to exercise the second sort key
+        long sharedMsb = random.nextLong();
+        for (int i = 0; i < 50; i++) {
+            distinct.add(new UUID(sharedMsb, random.nextLong()));
+        }
+        distinct.add(new UUID(0, 0));
+        distinct.add(new UUID(-1, -1));
+
+        List<String> input = new ArrayList<>();
+        for (UUID uuid : distinct) {
+            input.add(uuid.toString());
+            if (input.size() % 3 == 0) {
+                // Duplicate in the other accepted form
+                input.add(uuid.toString().replace("-", "").toUpperCase());
+            }
+        }
+        Collections.shuffle(input, random);
+
+        PlayerUuids.Builder builder = new PlayerUuids.Builder();
+        for (String uuid : input) {
+            assertTrue(builder.add(uuid));
+        }
+        assertFalse(builder.add("not a uuid"));
+        assertFalse(builder.add((String) null));
+        PlayerUuids players = builder.build();
+
+        // Ordered by msb, then lsb, both compared as signed longs
+        TreeSet<UUID> expected = new TreeSet<>((a, b) -> {
+            int cmp = Long.compare(a.getMostSignificantBits(), b.getMostSignificantBits());
+            return cmp != 0 ? cmp : Long.compare(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+        });
+        expected.addAll(distinct);
+
+        assertEquals(expected.size(), players.size());
+        int i = 0;
+        Set<String> expectedHex = new LinkedHashSet<>();
+        for (UUID uuid : expected) {
+            assertEquals(uuid.getMostSignificantBits(), players.msb(i));
+            assertEquals(uuid.getLeastSignificantBits(), players.lsb(i));
+            expectedHex.add(uuid.toString().replace("-", ""));
+            i++;
+        }
+        assertEquals(List.copyOf(expectedHex), List.copyOf(players.toHexStrings()));
+    }
+
+    @Test
+    void emptyBuilder() {
+        PlayerUuids players = new PlayerUuids.Builder().build();
+        assertEquals(0, players.size());
+        assertTrue(players.toHexStrings().isEmpty());
+    }
+}